@@ -37,6 +37,11 @@ public final class ErrorCodes {
      */
     public static final String SERVER_ERROR = "E1-2500";
 
+    /**
+     * This error code indicates the server is overloaded and rejected the request, the client should retry later
+     */
+    public static final String SERVICE_OVERLOADED = "E1-2503";
+
     /**
      * Generic 400 error code
      */
@@ -52,6 +57,12 @@ public final class ErrorCodes {
      */
     public static final String MANDATORY_PARAMETER_INVALID = "E1-7010";
 
+    /**
+     * Indicate an error code which states that the cursor of a paged plan is unknown, expired, already used or
+     * belongs to an older schedule
+     */
+    public static final String CURSOR_INVALID = "E1-7020";
+
     /**
      * We don't want any to instantiate this
      */
@@ -0,0 +1,32 @@
+package com.mmt.flights.planner.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * The plan cache related properties
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Validated
+@Getter
+@Setter
+public class CacheProperties {
+
+    /**
+     * Maximum number of routes held by all the cached plans, 0 disables the plan cache
+     */
+    @Min(0)
+    private long maximumRoutes;
+
+    /**
+     * How long, in milliseconds, every search holds off starting so that concurrent identical requests asking for
+     * more routes join it, the wait is paid by every cold search even without such a request, 0 starts it immediately
+     */
+    @Min(0)
+    private long coalesceWindowMillis;
+}
@@ -0,0 +1,37 @@
+package com.mmt.flights.planner.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * The paged plan (search cursor) related properties
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Validated
+@Getter
+@Setter
+public class CursorProperties {
+
+    /**
+     * Maximum number of suspended searches kept for the next page
+     */
+    @Min(1)
+    private long maximumCursors;
+
+    /**
+     * Seconds a suspended search is kept for the next page
+     */
+    @Min(1)
+    private long ttlSeconds;
+
+    /**
+     * Maximum number of routes a paged search returns over all its pages
+     */
+    @Min(1)
+    private int maximumRoutes;
+}
@@ -0,0 +1,37 @@
+package com.mmt.flights.planner.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * The search executor related properties
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Validated
+@Getter
+@Setter
+public class ExecutorProperties {
+
+    /**
+     * Number of threads running the searches, 0 means number of available processors
+     */
+    @Min(0)
+    private int threads;
+
+    /**
+     * Maximum number of searches waiting for a thread, more are rejected
+     */
+    @Min(0)
+    private int queueSize;
+
+    /**
+     * Seconds a rejected client is asked to wait before retrying
+     */
+    @Min(1)
+    private int retryAfterSeconds;
+}
@@ -60,4 +60,46 @@ public class Planner {
     @NotNull
     @Valid
     private AuthProperties auth;
+
+    /**
+     * Search properties
+     */
+    @NotNull
+    @Valid
+    private SearchProperties search;
+
+    /**
+     * Plan cache properties
+     */
+    @NotNull
+    @Valid
+    private CacheProperties cache;
+
+    /**
+     * Paged plan properties
+     */
+    @NotNull
+    @Valid
+    private CursorProperties cursor;
+
+    /**
+     * Search executor properties
+     */
+    @NotNull
+    @Valid
+    private ExecutorProperties executor;
+
+    /**
+     * Query history and warm up properties
+     */
+    @NotNull
+    @Valid
+    private WarmupProperties warmup;
+
+    /**
+     * Schedule data properties
+     */
+    @NotNull
+    @Valid
+    private ScheduleProperties schedule;
 }
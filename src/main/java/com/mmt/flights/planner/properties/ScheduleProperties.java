@@ -0,0 +1,53 @@
+package com.mmt.flights.planner.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * The schedule data related properties
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Validated
+@Getter
+@Setter
+public class ScheduleProperties {
+
+    /**
+     * The airport countries file, blank means the bundled classpath resource
+     */
+    private String airportsFile;
+
+    /**
+     * The flight schedule file, a directory of schedule files or a glob of schedule file names, blank means the bundled
+     * classpath resource
+     */
+    private String scheduleFile;
+
+    /**
+     * Threads parsing the files of a schedule directory or glob, 0 means all available processors
+     */
+    @Min(0)
+    private int loadThreads;
+
+    /**
+     * The binary graph snapshot file written from the schedule files and read instead of them while they don't change,
+     * blank means no snapshot
+     */
+    private String snapshotFile;
+
+    /**
+     * Whether to reload the schedule when the airport countries or flight schedule file changes
+     */
+    private boolean watch;
+
+    /**
+     * Millis to wait after the last change of a watched file before reloading, so a file being written is read once
+     */
+    @Min(0)
+    private long watchDelayMillis;
+}
@@ -0,0 +1,69 @@
+package com.mmt.flights.planner.properties;
+
+import com.mmt.flights.planner.service.route.planning.graph.SearchAlgorithm;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * The route search related properties
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Validated
+@Getter
+@Setter
+public class SearchProperties {
+
+    /**
+     * The algorithm used to answer top k cheapest route queries
+     */
+    @NotNull
+    private SearchAlgorithm algorithm;
+
+    /**
+     * Number of routes to precompute per origin destination pair at load time, 0 disables the route index
+     */
+    @Min(0)
+    private int routeIndexSize;
+
+    /**
+     * Number of threads used to build the route index, 0 means number of available processors
+     */
+    @Min(0)
+    private int routeIndexParallelism;
+
+    /**
+     * Number of threads running the searches of batch requests, 0 means number of available processors
+     */
+    @Min(0)
+    private int batchParallelism;
+
+    /**
+     * Maximum number of search requests in a batch request
+     */
+    @Min(1)
+    private int batchMaximumSize;
+
+    /**
+     * Wall clock time in millis a single search may run, 0 means unlimited
+     */
+    @Min(0)
+    private long deadlineMillis;
+
+    /**
+     * Maximum number of labels a single search may expand, 0 means unlimited
+     */
+    @Min(0)
+    private int maximumExpansions;
+
+    /**
+     * Maximum frontier size of a single search, 0 means unlimited
+     */
+    @Min(0)
+    private int maximumFrontier;
+}
@@ -0,0 +1,43 @@
+package com.mmt.flights.planner.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * The query history and plan cache warm up related properties
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Validated
+@Getter
+@Setter
+public class WarmupProperties {
+
+    /**
+     * The query history file, blank disables the query history and the warm up
+     */
+    private String historyFile;
+
+    /**
+     * Number of most requested origin destination pairs kept in the history file and warmed up at startup, 0 disables
+     * the warm up
+     */
+    @Min(0)
+    private int topPairs;
+
+    /**
+     * Seconds between two writes of the history file, 0 means it is only written at shutdown
+     */
+    @Min(0)
+    private int writeIntervalSeconds;
+
+    /**
+     * Maximum number of cheapest routes warmed up per pair
+     */
+    @Min(1)
+    private int maximumK;
+}
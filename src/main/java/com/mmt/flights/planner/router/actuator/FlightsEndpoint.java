@@ -0,0 +1,56 @@
+package com.mmt.flights.planner.router.actuator;
+
+import com.mmt.flights.planner.service.exception.ClientErrorException;
+import com.mmt.flights.planner.service.route.data.ScheduleReloader;
+import com.mmt.flights.planner.service.route.model.ScheduleDeltaRequest;
+import com.mmt.flights.planner.service.route.model.ScheduleDeltaResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import static com.mmt.flights.planner.ErrorCodes.MANDATORY_PARAMETER_INVALID;
+import static com.mmt.flights.planner.ErrorCodes.MANDATORY_PARAMETER_MISSING;
+
+/**
+ * Actuator endpoint to change the flights of the published schedule
+ * {@code POST /actuator/flights} with a body like {@code {"changes": [{"type": "RETIME", "code": "502",
+ * "from": "AJL", "to": "CCU", "departure": "1530", "arrival": "1640"}]}} applies the changes in order as one delta
+ * without a full reload. A change of type {@code ADD} needs every field, {@code REMOVE} the code and {@code RETIME} the
+ * code and times, the airports narrow a remove or retime down to one leg. It is a controller endpoint as operation
+ * endpoints only take flat string bodies
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+@RestControllerEndpoint(id = "flights")
+public class FlightsEndpoint {
+
+    /**
+     * Spring resolved bean for the schedule reloader
+     */
+    @Autowired
+    private ScheduleReloader scheduleReloader;
+
+    /**
+     * Apply a batch of flight changes
+     *
+     * @param request the flight changes in order
+     * @return the outcome with the version of the published schedule and the affected airports
+     * @throws ClientErrorException if there are no changes or a change is invalid, the current schedule stays published
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ScheduleDeltaResult change(@RequestBody ScheduleDeltaRequest request) {
+        if (request.getChanges() == null) {
+            throw new ClientErrorException(MANDATORY_PARAMETER_MISSING, "changes parameter is mandatory");
+        }
+        try {
+            return scheduleReloader.apply(request.getChanges());
+        } catch (IllegalArgumentException ex) {
+            throw new ClientErrorException(MANDATORY_PARAMETER_INVALID, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mmt.flights.planner.router.actuator;
+
+import com.mmt.flights.planner.service.route.data.ScheduleReloader;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Actuator endpoint of the published schedule
+ * {@code GET /actuator/schedule} returns the schedule version and the last reload, {@code POST /actuator/schedule}
+ * reloads the schedule without downtime and returns the same for the new schedule
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+@Endpoint(id = "schedule")
+public class ScheduleEndpoint {
+
+    /**
+     * Spring resolved bean for the schedule reloader
+     */
+    @Autowired
+    private ScheduleReloader scheduleReloader;
+
+    /**
+     * Get the published schedule
+     *
+     * @return the schedule status
+     */
+    @ReadOperation
+    public ScheduleStatus schedule() {
+        return status();
+    }
+
+    /**
+     * Reload the schedule
+     *
+     * @return the status of the new schedule
+     * @throws IOException if the schedule can't be loaded, the current schedule stays published
+     */
+    @WriteOperation
+    public ScheduleStatus reload() throws IOException {
+        scheduleReloader.reload();
+        return status();
+    }
+
+    /**
+     * Create the status of the published schedule
+     *
+     * @return the schedule status
+     */
+    private ScheduleStatus status() {
+        return new ScheduleStatus(scheduleReloader.getScheduleVersion(), scheduleReloader.getLastReloadMillis(),
+                scheduleReloader.getLastReloadedAt());
+    }
+
+    /**
+     * The status of the published schedule
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class ScheduleStatus {
+
+        /**
+         * the schedule version
+         */
+        private final long version;
+
+        /**
+         * duration of the last reload in millis, 0 if never reloaded
+         */
+        private final long lastReloadMillis;
+
+        /**
+         * epoch millis of the last reload, 0 if never reloaded
+         */
+        private final long lastReloadedAt;
+    }
+}
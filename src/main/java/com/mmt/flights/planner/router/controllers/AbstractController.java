@@ -36,6 +36,15 @@ public abstract class AbstractController implements InitializingBean {
         afterPropertiesSetInternal();
     }
 
+    /**
+     * Get the jackson object mapper to write json
+     *
+     * @return the object mapper
+     */
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
     /**
      * Implementations must implement this to add custom validation logic
      *
@@ -1,10 +1,18 @@
 package com.mmt.flights.planner.router.controllers.planning;
 
+import com.mmt.flights.planner.api.ApiClientError;
+import com.mmt.flights.planner.properties.Planner;
 import com.mmt.flights.planner.router.controllers.AbstractController;
 import com.mmt.flights.planner.service.exception.ClientErrorException;
 import com.mmt.flights.planner.service.exception.ServiceException;
+import com.mmt.flights.planner.service.exception.ServiceOverloadedException;
 import com.mmt.flights.planner.service.route.PlannerService;
+import com.mmt.flights.planner.service.route.executor.SearchExecutor;
+import com.mmt.flights.planner.service.route.model.BatchPlan;
+import com.mmt.flights.planner.service.route.model.BatchPlanItem;
+import com.mmt.flights.planner.service.route.model.BatchSearchRequest;
 import com.mmt.flights.planner.service.route.model.Plan;
+import com.mmt.flights.planner.service.route.model.RouteEvent;
 import com.mmt.flights.planner.service.route.model.SearchRequest;
 import com.mmt.flights.planner.util.ValidationUtil;
 import org.slf4j.Logger;
@@ -13,8 +21,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.mmt.flights.planner.ErrorCodes.MANDATORY_PARAMETER_INVALID;
 import static com.mmt.flights.planner.ErrorCodes.MANDATORY_PARAMETER_MISSING;
@@ -23,6 +41,8 @@ import static com.mmt.flights.planner.ErrorCodes.MANDATORY_PARAMETER_MISSING;
 /**
  * Planner controller
  * Exposes api for planning route from A to B
+ * The searches run on the {@link SearchExecutor} so the web server workers stay free, a request is rejected with 503
+ * when the executor queue is full
  *
  * @author ritesh
  * @version 1.0.0
@@ -42,12 +62,26 @@ public class RouteController extends AbstractController {
     @Autowired
     private PlannerService plannerService;
 
+    /**
+     * Application properties resolved by spring
+     */
+    @Autowired
+    private Planner planner;
+
+    /**
+     * Spring resolved bean for the search executor
+     */
+    @Autowired
+    private SearchExecutor searchExecutor;
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected void afterPropertiesSetInternal() throws Exception {
         ValidationUtil.assertNotNull(plannerService);
+        ValidationUtil.assertNotNull(planner);
+        ValidationUtil.assertNotNull(searchExecutor);
     }
 
     /**
@@ -55,21 +89,178 @@ public class RouteController extends AbstractController {
      *
      * @param request the video search request (categories, keyword, limit, next parameters)
      * @return 200 if operation is success
-     * @throws ClientErrorException if 4xx error
-     * @throws ServiceException     if any other error occurs
+     * @throws ClientErrorException        if 4xx error
+     * @throws ServiceOverloadedException if the search executor queue is full
+     * @throws ServiceException            if any other error occurs
      */
     @GetMapping(value = "/plan", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> plan(SearchRequest request) {
+    public CompletableFuture<ResponseEntity<?>> plan(SearchRequest request) {
+        validate(request);
+
+        logEntry(LOGGER, "RouteController#plan", request);
+
+        return searchExecutor.submit(() -> {
+            final Plan response = plannerService.plan(request);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * Plan a page of k cheapest routes
+     * the first page is requested with start, destination and k, every next page with the cursor returned by the
+     * previous page and k. A cursor can be used once and expires, the last page has no cursor. k is at most the
+     * maximum number of routes of a paged search, the first page runs within the search budget and is partial if it
+     * ran out
+     *
+     * @param request the search request (start, destination, k) or (cursor, k)
+     * @return 200 with the page
+     * @throws ClientErrorException        if 4xx error, including an invalid cursor
+     * @throws ServiceOverloadedException if the search executor queue is full
+     * @throws ServiceException            if any other error occurs
+     */
+    @GetMapping(value = "/plan/page", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> planPage(SearchRequest request) {
+        if (request.getCursor() != null) {
+            assertValid(request.getCursor(), "cursor", "cursor parameter should not be blank", MANDATORY_PARAMETER_INVALID);
+            assertNotNull(request.getK(), "k", "k parameter is mandatory", MANDATORY_PARAMETER_MISSING);
+            assertTrue(request.getK() > 0, "k", "k should be greater than 0", MANDATORY_PARAMETER_INVALID);
+        } else {
+            validate(request);
+        }
+        final int maximumRoutes = planner.getCursor().getMaximumRoutes();
+        assertTrue(request.getK() <= maximumRoutes, "k", "k should be at most " + maximumRoutes,
+                MANDATORY_PARAMETER_INVALID);
+
+        logEntry(LOGGER, "RouteController#planPage", request);
+
+        return searchExecutor.submit(() -> {
+            final Plan response = plannerService.planPage(request);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * Stream the plan as newline delimited json, one {@link RouteEvent} per line
+     * direct flights come first and than the cheapest routes in ascending order of cost, every route is written as soon
+     * as it is found so the client gets the first routes without waiting for all k. The search is submitted to the
+     * {@link SearchExecutor} before the response starts, so an overloaded server answers 503 like the other endpoints
+     *
+     * @param request the search request (start, destination, k)
+     * @return 200 with the streamed routes
+     * @throws ClientErrorException        if 4xx error
+     * @throws ServiceOverloadedException if the search executor queue is full
+     * @throws ServiceException            if any other error occurs
+     */
+    @GetMapping(value = "/plan/stream")
+    public ResponseEntity<ResponseBodyEmitter> planStream(SearchRequest request) {
+        validate(request);
+
+        logEntry(LOGGER, "RouteController#planStream", request);
+
+        // events sent before the response is ready are buffered by the emitter
+        final ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        searchExecutor.execute(() -> {
+            try {
+                plannerService.planStream(request, event -> send(emitter, event));
+                emitter.complete();
+            } catch (UncheckedIOException ex) {
+                // the client went away, the container completes the request
+                LOGGER.debug("route stream aborted, {}", ex.getMessage());
+            } catch (RuntimeException ex) {
+                emitter.completeWithError(ex);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    /**
+     * Send a route event as a json line, the emitter flushes it to the client
+     *
+     * @param emitter the response emitter
+     * @param event   the route event
+     * @throws UncheckedIOException if sending fails e.g. the client went away
+     */
+    private void send(ResponseBodyEmitter emitter, RouteEvent event) {
+        try {
+            byte[] json = getObjectMapper().writeValueAsBytes(event);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = '\n';
+            emitter.send(line, MediaType.APPLICATION_NDJSON);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Plan the routes of many search requests in one call
+     * the requests are searched in parallel and identical requests are searched once, an invalid or failed request
+     * doesn't fail the batch, its item has the error instead of the plan
+     *
+     * @param request the batch search request
+     * @return 200 with the result of every search request in request order
+     * @throws ClientErrorException        if the batch is missing, empty or too large
+     * @throws ServiceOverloadedException if the search executor queue is full
+     * @throws ServiceException            if any other error occurs
+     */
+    @PostMapping(value = "/plan/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> planBatch(@RequestBody BatchSearchRequest request) {
+        final int maximumSize = planner.getSearch().getBatchMaximumSize();
+        assertNotNull(request.getRequests(), "requests", "requests parameter is mandatory", MANDATORY_PARAMETER_MISSING);
+        assertTrue(!request.getRequests().isEmpty(), "requests", "requests should not be empty",
+                MANDATORY_PARAMETER_INVALID);
+        assertTrue(request.getRequests().size() <= maximumSize, "requests",
+                "requests should have at most " + maximumSize + " items", MANDATORY_PARAMETER_INVALID);
+
+        logEntry(LOGGER, "RouteController#planBatch", request);
+
+        // invalid requests get their error here, only the valid ones are searched
+        final List<BatchPlanItem> plans = new ArrayList<>(request.getRequests().size());
+        final List<SearchRequest> valid = new ArrayList<>(request.getRequests().size());
+        for (SearchRequest item : request.getRequests()) {
+            try {
+                validate(item);
+                valid.add(item);
+                plans.add(null);
+            } catch (ClientErrorException cee) {
+                plans.add(BatchPlanItem.builder().error(ApiClientError.builder().code(cee.getCode())
+                        .message(cee.getMessage()).errorDetails(cee.getDetails()).build()).build());
+            }
+        }
+        return searchExecutor.submit(() -> {
+            final List<BatchPlanItem> searched = plannerService.planBatch(valid);
+            for (int i = 0, j = 0; i < plans.size(); i++) {
+                if (plans.get(i) == null) {
+                    plans.set(i, searched.get(j++));
+                }
+                if (plans.get(i).getError() != null) {
+                    plans.get(i).getError().setServiceName(planner.getServiceName());
+                    plans.get(i).getError().setServiceVersion(planner.getServiceVersion());
+                }
+            }
+            return ResponseEntity.ok(BatchPlan.builder().plans(plans).build());
+        });
+    }
+
+    /**
+     * Validate a search request
+     *
+     * @param request the search request
+     * @throws ClientErrorException if the request is invalid
+     */
+    private void validate(SearchRequest request) {
+        assertNotNull(request, "request", "request is mandatory", MANDATORY_PARAMETER_MISSING);
         assertValid(request.getStart(), "start", "start parameter is mandatory",
                 MANDATORY_PARAMETER_MISSING);
         assertValid(request.getDestination(), "destination", "destination parameter is mandatory",
                 MANDATORY_PARAMETER_MISSING);
         assertNotNull(request.getK(), "k", "k parameter is mandatory", MANDATORY_PARAMETER_MISSING);
         assertTrue(request.getK() > 0, "k", "k should be greater than 0", MANDATORY_PARAMETER_INVALID);
-
-        logEntry(LOGGER, "RouteController#plan", request);
-
-        final Plan response = plannerService.plan(request);
-        return ResponseEntity.ok(response);
+        assertTrue(request.getDeadlineMillis() == null || request.getDeadlineMillis() > 0, "deadlineMillis",
+                "deadlineMillis should be greater than 0", MANDATORY_PARAMETER_INVALID);
+        assertTrue(request.getMaximumExpansions() == null || request.getMaximumExpansions() > 0, "maximumExpansions",
+                "maximumExpansions should be greater than 0", MANDATORY_PARAMETER_INVALID);
+        assertTrue(request.getMaximumFrontier() == null || request.getMaximumFrontier() > 0, "maximumFrontier",
+                "maximumFrontier should be greater than 0", MANDATORY_PARAMETER_INVALID);
     }
 }
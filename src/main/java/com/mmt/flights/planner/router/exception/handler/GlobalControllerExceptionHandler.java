@@ -8,11 +8,13 @@ import com.mmt.flights.planner.properties.Planner;
 import com.mmt.flights.planner.security.exception.AuthenticationException;
 import com.mmt.flights.planner.service.exception.ClientErrorException;
 import com.mmt.flights.planner.service.exception.ServiceException;
+import com.mmt.flights.planner.service.exception.ServiceOverloadedException;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.web.firewall.RequestRejectedException;
@@ -170,6 +172,31 @@ public class GlobalControllerExceptionHandler {
         return new ResponseEntity<ApiError>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * Handle {@link ServiceOverloadedException}
+     * the client is told when to retry by the Retry-After header
+     *
+     * @param soe the cause
+     * @return the error response
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseBody
+    public ResponseEntity<ApiError> handleServiceOverloadedException(HttpServletRequest request,
+                                                                     ServiceOverloadedException soe) {
+        LOGGER.warn("request rejected, {}", soe.getMessage());
+
+        ApiError response = ApiError.builder()
+                .serviceName(planner.getServiceName())
+                .serviceVersion(planner.getServiceVersion())
+                .code(soe.getCode())
+                .message(soe.getMessage()).build();
+        additionalProperties(response, request, soe);
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(soe.getRetryAfterSeconds()))
+                .body(response);
+    }
+
     /**
      * Handle {@link AuthenticationException}
      *
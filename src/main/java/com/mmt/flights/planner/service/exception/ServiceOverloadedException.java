@@ -0,0 +1,38 @@
+package com.mmt.flights.planner.service.exception;
+
+import com.mmt.flights.planner.ErrorCodes;
+
+/**
+ * Exception class that resolves to 503 status code
+ * Thrown when the server has no capacity left to accept the request, the client should retry after a while
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class ServiceOverloadedException extends ServiceException {
+
+    /**
+     * Seconds the client should wait before retrying
+     */
+    private final int retryAfterSeconds;
+
+    /**
+     * Create instance of service overloaded exception with specified message
+     *
+     * @param message           the exception message
+     * @param retryAfterSeconds seconds the client should wait before retrying
+     */
+    public ServiceOverloadedException(String message, int retryAfterSeconds) {
+        super(ErrorCodes.SERVICE_OVERLOADED, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Get the value of retryAfterSeconds
+     *
+     * @return the value of retryAfterSeconds
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
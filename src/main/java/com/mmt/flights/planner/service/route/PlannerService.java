@@ -2,8 +2,16 @@ package com.mmt.flights.planner.service.route;
 
 import com.mmt.flights.planner.service.exception.ClientErrorException;
 import com.mmt.flights.planner.service.exception.ServiceException;
+import com.mmt.flights.planner.service.route.model.BatchPlanItem;
 import com.mmt.flights.planner.service.route.model.Plan;
+import com.mmt.flights.planner.service.route.model.RouteEvent;
+import com.mmt.flights.planner.service.route.model.ScheduleDeltaResult;
 import com.mmt.flights.planner.service.route.model.SearchRequest;
+import com.mmt.flights.planner.service.route.planning.graph.ScheduleDelta;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Route planning service
@@ -22,4 +30,73 @@ public interface PlannerService {
      * @throws ServiceException     if any unexpected error occurs
      */
     Plan plan(SearchRequest request);
+
+    /**
+     * Plan the routes of many search requests in parallel
+     * a failed request doesn't fail the batch, its item has the error instead of the plan
+     *
+     * @param requests the valid search requests
+     * @return the result of every request in request order
+     */
+    List<BatchPlanItem> planBatch(List<SearchRequest> requests);
+
+    /**
+     * Plan the routes of many search requests in parallel to warm the plan cache up
+     * same as {@link #planBatch(List)} but the requests are not recorded as live traffic
+     *
+     * @param requests the valid search requests
+     * @return the result of every request in request order
+     */
+    List<BatchPlanItem> warmUp(List<SearchRequest> requests);
+
+    /**
+     * Plan a route using search request and pass every route to the consumer as soon as it is found
+     * direct flights come first and than the cheapest routes in ascending order of cost
+     *
+     * @param request  the search request
+     * @param consumer the consumer of the routes
+     * @throws ClientErrorException if request is invalid
+     * @throws ServiceException     if any unexpected error occurs
+     */
+    void planStream(SearchRequest request, Consumer<RouteEvent> consumer);
+
+    /**
+     * Plan a page of k cheapest routes
+     * without a cursor the first page of start to destination is planned, with a cursor the next page of the same
+     * search continues where the previous page stopped. Direct flights are only part of the first page
+     *
+     * @param request the search request, k is the page size
+     * @return the page with the cursor of the next page or without cursor if there are no more routes
+     * @throws ClientErrorException if the cursor is unknown, expired, already used or of an older schedule
+     * @throws ServiceException     if any unexpected error occurs
+     */
+    Plan planPage(SearchRequest request);
+
+    /**
+     * Load the schedule again and publish it
+     * the running searches finish with the schedule they started with
+     *
+     * @return the version of the published schedule
+     * @throws IOException if the schedule can't be loaded, the current schedule stays published
+     */
+    long reload() throws IOException;
+
+    /**
+     * Apply a batch of flight changes to the published schedule without loading it again
+     * the changed schedule is published as the next version, cached plans of the origin destination pairs the changes
+     * can't affect stay cached and the running searches finish with the schedule they started with
+     *
+     * @param delta the flight changes
+     * @return the outcome with the version of the published schedule and the affected airports
+     * @throws IllegalArgumentException if a change is invalid, the current schedule stays published
+     */
+    ScheduleDeltaResult apply(ScheduleDelta delta);
+
+    /**
+     * Get the version of the published schedule
+     * the first loaded schedule is version 1, every reload and delta increments it
+     *
+     * @return the schedule version
+     */
+    long getScheduleVersion();
 }
@@ -0,0 +1,114 @@
+package com.mmt.flights.planner.service.route.data;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Resolves a configured schedule location to its files
+ * A location is a single file, a directory (every {@code .json} and {@code .json.gz} file in it) or a glob on the file
+ * names of one directory like {@code /data/schedules/carrier-*.json.gz}. Files are resolved in name order so the
+ * flights of a schedule split over several files always get the same ids
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public final class ScheduleFiles {
+
+    /**
+     * the glob of the schedule files of a directory
+     */
+    private static final String DIRECTORY_GLOB = "*.{json,json.gz}";
+
+    /**
+     * the characters that make a location a glob
+     */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * Utility class
+     */
+    private ScheduleFiles() {
+    }
+
+    /**
+     * Check if a location may resolve to several files
+     *
+     * @param location the configured location
+     * @return true if the location is a directory or a glob
+     */
+    public static boolean isMultiple(String location) {
+        return StringUtils.containsAny(location, GLOB_CHARACTERS) || Files.isDirectory(Paths.get(location));
+    }
+
+    /**
+     * Get the directory of the files of a location
+     *
+     * @param location the configured location
+     * @return the absolute directory
+     */
+    public static Path directory(String location) {
+        Path path = Paths.get(location).toAbsolutePath();
+        return !StringUtils.containsAny(location, GLOB_CHARACTERS) && Files.isDirectory(path) ? path : path.getParent();
+    }
+
+    /**
+     * List the files of a location
+     *
+     * @param location the configured location
+     * @return the absolute files in name order, only the location itself if it is a single file
+     * @throws IOException if the directory can't be listed
+     */
+    public static List<Path> list(String location) throws IOException {
+        if (!isMultiple(location)) {
+            return Collections.singletonList(Paths.get(location).toAbsolutePath());
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory(location), glob(location))) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Get a test of the paths belonging to a location, used to tell if a changed file is one of its files
+     *
+     * @param location the configured location
+     * @return the test of absolute paths
+     */
+    public static Predicate<Path> matcher(String location) {
+        final Path directory = directory(location);
+        if (!isMultiple(location)) {
+            final Path file = Paths.get(location).toAbsolutePath();
+            return file::equals;
+        }
+        final PathMatcher names = FileSystems.getDefault().getPathMatcher("glob:" + glob(location));
+        return path -> directory.equals(path.getParent()) && names.matches(path.getFileName());
+    }
+
+    /**
+     * Get the glob on the file names of a multiple location
+     *
+     * @param location the configured location
+     * @return the glob
+     */
+    private static String glob(String location) {
+        return StringUtils.containsAny(location, GLOB_CHARACTERS) ? Paths.get(location).getFileName().toString()
+                : DIRECTORY_GLOB;
+    }
+}
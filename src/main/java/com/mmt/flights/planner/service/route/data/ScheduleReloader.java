@@ -0,0 +1,224 @@
+package com.mmt.flights.planner.service.route.data;
+
+import com.mmt.flights.planner.service.route.PlannerService;
+import com.mmt.flights.planner.service.route.model.FlightChange;
+import com.mmt.flights.planner.service.route.model.ScheduleDeltaResult;
+import com.mmt.flights.planner.service.route.planning.graph.ScheduleDelta;
+import com.mmt.flights.planner.service.route.warmup.PlanWarmer;
+import com.mmt.flights.planner.util.ValidationUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reloads the schedule or applies flight changes to it without downtime
+ * The new schedule is loaded and published by {@link PlannerService#reload()} while the current one keeps serving,
+ * than the plan cache is warmed up again for the new schedule. Reloads are triggered by the schedule actuator endpoint
+ * and by the {@link ScheduleWatcher}. Deltas of a few flights are applied by {@link PlannerService#apply(ScheduleDelta)}
+ * which keeps the plans they can't affect cached. The schedule version, the reload and delta durations and their
+ * outcomes are published as {@code planner.schedule.*} metrics
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+public class ScheduleReloader {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleReloader.class);
+
+    /**
+     * The planner service publishing the schedule
+     */
+    private final PlannerService plannerService;
+
+    /**
+     * The plan warmer to warm the plan cache up for the new schedule
+     */
+    private final PlanWarmer planWarmer;
+
+    /**
+     * Duration of the last successful reload in millis
+     */
+    private final AtomicLong lastReloadMillis = new AtomicLong();
+
+    /**
+     * Epoch millis of the last successful reload or 0 if the schedule was never reloaded
+     */
+    private final AtomicLong lastReloadedAt = new AtomicLong();
+
+    /**
+     * Number of successful reloads
+     */
+    private final Counter successes;
+
+    /**
+     * Number of failed reloads
+     */
+    private final Counter failures;
+
+    /**
+     * Duration of the applied deltas
+     */
+    private final Timer deltaDuration;
+
+    /**
+     * Number of applied deltas
+     */
+    private final Counter deltaSuccesses;
+
+    /**
+     * Number of rejected deltas
+     */
+    private final Counter deltaFailures;
+
+    /**
+     * Default constructor
+     *
+     * @param plannerService the planner service publishing the schedule
+     * @param planWarmer     the plan warmer
+     * @param meterRegistry  the registry to publish the schedule metrics to
+     */
+    @Autowired
+    public ScheduleReloader(PlannerService plannerService, PlanWarmer planWarmer, MeterRegistry meterRegistry) {
+        this.plannerService = plannerService;
+        this.planWarmer = planWarmer;
+
+        Gauge.builder("planner.schedule.version", plannerService, PlannerService::getScheduleVersion)
+                .description("version of the published schedule").register(meterRegistry);
+        TimeGauge.builder("planner.schedule.reload.duration", lastReloadMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("duration of the last schedule reload").register(meterRegistry);
+        this.successes = Counter.builder("planner.schedule.reloads").tag("result", "success")
+                .description("number of schedule reloads").register(meterRegistry);
+        this.failures = Counter.builder("planner.schedule.reloads").tag("result", "failure")
+                .description("number of schedule reloads").register(meterRegistry);
+        this.deltaDuration = Timer.builder("planner.schedule.delta.duration")
+                .description("duration of applying a schedule delta").register(meterRegistry);
+        this.deltaSuccesses = Counter.builder("planner.schedule.deltas").tag("result", "success")
+                .description("number of schedule deltas").register(meterRegistry);
+        this.deltaFailures = Counter.builder("planner.schedule.deltas").tag("result", "failure")
+                .description("number of schedule deltas").register(meterRegistry);
+    }
+
+    /**
+     * Reload the schedule and warm the plan cache up for it
+     *
+     * @return the version of the published schedule
+     * @throws IOException if the schedule can't be loaded, the current schedule stays published
+     */
+    public long reload() throws IOException {
+        final long start = System.nanoTime();
+        final long version;
+        try {
+            version = plannerService.reload();
+        } catch (IOException | RuntimeException ex) {
+            failures.increment();
+            LOGGER.error("schedule reload failed, version {} stays published", plannerService.getScheduleVersion(), ex);
+            throw ex;
+        }
+        lastReloadMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        lastReloadedAt.set(System.currentTimeMillis());
+        successes.increment();
+        LOGGER.info("Reloaded schedule version {} in {} ms", version, lastReloadMillis.get());
+
+        planWarmer.warmUp();
+        return version;
+    }
+
+    /**
+     * Apply a batch of flight changes to the published schedule
+     *
+     * @param changes the flight changes in order
+     * @return the outcome with the version of the published schedule and the affected airports
+     * @throws IllegalArgumentException if a change is invalid, the current schedule stays published
+     */
+    public ScheduleDeltaResult apply(List<FlightChange> changes) {
+        final long start = System.nanoTime();
+        final ScheduleDeltaResult result;
+        try {
+            result = plannerService.apply(toDelta(changes));
+        } catch (RuntimeException ex) {
+            deltaFailures.increment();
+            LOGGER.warn("schedule delta rejected, version {} stays published: {}", plannerService.getScheduleVersion(),
+                    ex.getMessage());
+            throw ex;
+        }
+        final long nanos = System.nanoTime() - start;
+        deltaDuration.record(nanos, TimeUnit.NANOSECONDS);
+        deltaSuccesses.increment();
+        LOGGER.info("Applied schedule delta of {} changes as version {} in {} us", changes.size(), result.getVersion(),
+                TimeUnit.NANOSECONDS.toMicros(nanos));
+        return result;
+    }
+
+    /**
+     * Translate the flight changes to a schedule delta
+     *
+     * @param changes the flight changes
+     * @return the delta
+     * @throws IllegalArgumentException if a change misses a field it needs
+     */
+    private static ScheduleDelta toDelta(List<FlightChange> changes) {
+        ValidationUtil.assertNotNull(changes, "changes must not be null");
+        ScheduleDelta delta = new ScheduleDelta();
+        for (FlightChange change : changes) {
+            ValidationUtil.assertNotNull(change, "change must not be null");
+            ValidationUtil.assertNotNull(change.getType(), "change type must not be null");
+            switch (change.getType()) {
+                case ADD:
+                    delta.add(change.getCode(), change.getFrom(), change.getTo(), change.getDeparture(),
+                            change.getArrival());
+                    break;
+                case REMOVE:
+                    delta.remove(change.getCode(), change.getFrom(), change.getTo());
+                    break;
+                case RETIME:
+                default:
+                    delta.retime(change.getCode(), change.getFrom(), change.getTo(), change.getDeparture(),
+                            change.getArrival());
+                    break;
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Get the version of the published schedule
+     *
+     * @return the schedule version
+     */
+    public long getScheduleVersion() {
+        return plannerService.getScheduleVersion();
+    }
+
+    /**
+     * Get the duration of the last successful reload
+     *
+     * @return the duration in millis or 0 if the schedule was never reloaded
+     */
+    public long getLastReloadMillis() {
+        return lastReloadMillis.get();
+    }
+
+    /**
+     * Get the time of the last successful reload
+     *
+     * @return the epoch millis or 0 if the schedule was never reloaded
+     */
+    public long getLastReloadedAt() {
+        return lastReloadedAt.get();
+    }
+}
@@ -0,0 +1,178 @@
+package com.mmt.flights.planner.service.route.data;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.properties.ScheduleProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Watches the external airport countries and schedule files and reloads the schedule when they change
+ * A schedule directory or glob is watched for added, changed and removed schedule files
+ * A reload starts once the files were quiet for the configured delay so a file being written or several files
+ * replaced together cause one reload. Only active if enabled and at least one external file is configured
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+public class ScheduleWatcher implements InitializingBean, DisposableBean {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleWatcher.class);
+
+    /**
+     * The schedule properties
+     */
+    private final ScheduleProperties properties;
+
+    /**
+     * The reloader
+     */
+    private final ScheduleReloader scheduleReloader;
+
+    /**
+     * The watch service or null if not watching
+     */
+    private WatchService watchService;
+
+    /**
+     * The scheduler running the watch loop and the delayed reloads
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * The pending reload, only accessed by the watch loop
+     */
+    private ScheduledFuture<?> pendingReload;
+
+    /**
+     * Default constructor
+     *
+     * @param planner          the application properties
+     * @param scheduleReloader the reloader
+     */
+    @Autowired
+    public ScheduleWatcher(Planner planner, ScheduleReloader scheduleReloader) {
+        this.properties = planner.getSchedule();
+        this.scheduleReloader = scheduleReloader;
+    }
+
+    /**
+     * Start watching the external files if enabled
+     *
+     * @throws IOException if the watch service can't be created
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        List<String> locations = new ArrayList<>();
+        for (String location : new String[]{properties.getAirportsFile(), properties.getScheduleFile()}) {
+            if (StringUtils.isNotBlank(location)) {
+                locations.add(location);
+            }
+        }
+        if (!properties.isWatch() || locations.isEmpty()) {
+            LOGGER.info("Schedule files are not watched");
+            return;
+        }
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        List<Predicate<Path>> files = new ArrayList<>();
+        for (String location : locations) {
+            Path directory = ScheduleFiles.directory(location);
+            if (directories.add(directory)) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+            files.add(ScheduleFiles.matcher(location));
+        }
+        this.scheduler = Executors.newScheduledThreadPool(2,
+                new ThreadFactoryBuilder().setNameFormat("planner-schedule-watcher-%d").setDaemon(true).build());
+        scheduler.execute(() -> watch(files));
+        LOGGER.info("Watching schedule files {}", locations);
+    }
+
+    /**
+     * The watch loop, schedules a reload whenever a watched file changes
+     *
+     * @param files the tests of the watched files
+     */
+    private void watch(List<Predicate<Path>> files) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // events were lost, any watched file may have changed
+                        changed = true;
+                    } else if (event.context() instanceof Path) {
+                        Path file = directory.resolve((Path) event.context());
+                        changed |= files.stream().anyMatch(watched -> watched.test(file));
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    if (pendingReload != null) {
+                        pendingReload.cancel(false);
+                    }
+                    pendingReload = scheduler.schedule(this::reload, properties.getWatchDelayMillis(),
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            LOGGER.info("Stopped watching schedule files");
+        }
+    }
+
+    /**
+     * Reload the schedule, a failure keeps the current schedule published
+     */
+    private void reload() {
+        try {
+            scheduleReloader.reload();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("schedule reload after a file change failed", ex);
+        }
+    }
+
+    /**
+     * Stop watching
+     *
+     * @throws IOException if the watch service can't be closed
+     */
+    @Override
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            scheduler.shutdownNow();
+            watchService.close();
+        }
+    }
+}
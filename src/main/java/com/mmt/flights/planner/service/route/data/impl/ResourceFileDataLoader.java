@@ -1,13 +1,17 @@
 package com.mmt.flights.planner.service.route.data.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.properties.ScheduleProperties;
 import com.mmt.flights.planner.service.route.data.DataLoader;
-import com.mmt.flights.planner.service.route.planning.cache.Airports;
-import com.mmt.flights.planner.service.route.planning.cache.Flights;
+import com.mmt.flights.planner.service.route.data.ScheduleFiles;
 import com.mmt.flights.planner.service.route.planning.graph.Airport;
 import com.mmt.flights.planner.service.route.planning.graph.Flight;
 import com.mmt.flights.planner.service.route.planning.graph.Graph;
+import com.mmt.flights.planner.service.route.planning.graph.GraphBuilder;
 import com.mmt.flights.planner.util.TimeUtil;
 import com.mmt.flights.planner.util.ValidationUtil;
 import lombok.Getter;
@@ -16,23 +20,49 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Concrete implementation of {@link DataLoader} which loads data from the resource file
- * As of version 1.0.0 this is the primary implementation
+ * or from the airport countries and schedule files if configured, see {@link ScheduleProperties}
+ * The files are streamed token by token, every schedule record is validated and added to the graph builder as soon as
+ * it is read so the schedule is never held as a whole. Gzip compressed files are detected by their content
+ * The schedule may be split over the files of a directory or glob, see {@link ScheduleFiles}, they are parsed in
+ * parallel on a bounded pool into one flight buffer per file and the buffers are merged into the graph builder in
+ * file order, so the graph is the same as if the files were read one after the other
+ * It is the source of the {@link SnapshotFileDataLoader} which is the primary implementation
  *
  * @author ritesh
  * @version 1.0.0
  */
-@Primary
 @Component
 public class ResourceFileDataLoader implements DataLoader {
 
@@ -51,6 +81,11 @@ public class ResourceFileDataLoader implements DataLoader {
      */
     private static final String AIRPORT_COUNTRIES_FILE_PATH = "/data/airports-ivtest-countries.json";
 
+    /**
+     * The number of schedule records between two samples of the used heap
+     */
+    private static final int HEAP_SAMPLE_RECORDS = 10_000;
+
     @Getter
     @Setter
     private static class Schedule {
@@ -87,83 +122,335 @@ public class ResourceFileDataLoader implements DataLoader {
     @Autowired
     private ObjectMapper objectMapper;
 
+    /**
+     * The application properties with the schedule files
+     */
+    @Autowired
+    private Planner planner;
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void afterPropertiesSet() throws Exception {
         ValidationUtil.assertNotNull(objectMapper);
+        ValidationUtil.assertNotNull(planner);
     }
 
-    private void validateSchedule(Schedule schedule) {
+    private void validateSchedule(Schedule schedule, Map<String, Airport> airports) {
         if (StringUtils.isBlank(schedule.from) || StringUtils.isBlank(schedule.to) ||
                 StringUtils.isBlank(schedule.code) || schedule.departure == null || schedule.arrival == null) {
             throw new IllegalStateException("a flight code, from, to, arrival, departure must not be null/blank");
         }
 
-        Flight flight = Flights.fromCode(schedule.code);
-        if (flight != null) {
-            String message = String.format("each flight must have a unique code. Code [%s] is duplicated", schedule.code);
-            throw new IllegalStateException(message);
-        }
         if (schedule.from.equalsIgnoreCase(schedule.to)) {
             String message = String.format("flight code [%s]. from [%s], to [%s] must be different", schedule.code,
                     schedule.from, schedule.to);
             throw new IllegalStateException(message);
         }
-        Airport from = Airports.fromCode(schedule.from);
+        Airport from = airports.get(schedule.from);
         if (from == null) {
             throw new IllegalStateException(String.format("invalid from airport code [%s]", schedule.from));
         }
-        Airport to = Airports.fromCode(schedule.to);
+        Airport to = airports.get(schedule.to);
         if (to == null) {
             throw new IllegalStateException(String.format("invalid to airport code [%s]", schedule.from));
         }
     }
 
+    /**
+     * Open the configured file or the bundled classpath resource if no file is configured
+     * a gzip compressed file or resource is decompressed on the fly
+     *
+     * @param file     the configured file or blank
+     * @param resource the classpath resource
+     * @return the input stream
+     * @throws IOException if the file or resource can't be opened
+     */
+    private static InputStream open(String file, String resource) throws IOException {
+        InputStream inputStream = new BufferedInputStream(StringUtils.isNotBlank(file)
+                ? Files.newInputStream(Paths.get(file)) : new ClassPathResource(resource).getInputStream());
+        // gzip streams start with the magic bytes 1f 8b
+        inputStream.mark(2);
+        int first = inputStream.read();
+        int second = inputStream.read();
+        inputStream.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(inputStream) : inputStream;
+    }
+
+    /**
+     * Move the parser to the next token and check its type
+     *
+     * @param parser   the parser
+     * @param expected the expected token
+     * @param source   the source for the error message
+     * @throws IOException           if the json can't be read
+     * @throws IllegalStateException if the token is not the expected one
+     */
+    private static void expect(JsonParser parser, JsonToken expected, String source) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != expected) {
+            throw new IllegalStateException(String.format("%s: expected %s but was %s at %s", source, expected, token,
+                    parser.getCurrentLocation()));
+        }
+    }
+
+    /**
+     * Read the schedule records of a json array, every record is validated and its flight handed to the sink
+     * thread safe as long as the sink is, the airports are only read
+     *
+     * @param inputStream the input stream of the json array
+     * @param source      the source for messages
+     * @param airports    the airports by code
+     * @param flightCodes the codes seen so far, shared by all the schedule files
+     * @param duplicates  the number of flights with a code seen before
+     * @param peakHeap    the largest sampled heap usage, sampled every {@link #HEAP_SAMPLE_RECORDS} records
+     * @param sink        the consumer of the flights in record order
+     * @return the number of records
+     * @throws IOException           if the json can't be read
+     * @throws IllegalStateException if the json is not an array of schedule records or a record is invalid
+     */
+    private int readSchedules(InputStream inputStream, String source, Map<String, Airport> airports,
+                              Set<String> flightCodes, AtomicInteger duplicates, LongAccumulator peakHeap,
+                              Consumer<Flight> sink) throws IOException {
+        int records = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            expect(parser, JsonToken.START_ARRAY, source);
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Schedule schedule = readSchedule(parser);
+                if (++records % HEAP_SAMPLE_RECORDS == 0) {
+                    peakHeap.accumulate(usedHeap());
+                }
+                validateSchedule(schedule, airports);
+                if (!flightCodes.add(schedule.code)) {
+                    duplicates.incrementAndGet();
+                }
+
+                Airport from = airports.get(schedule.from);
+                Airport to = airports.get(schedule.to);
+                sink.accept(Flight.fromCode(schedule.code, TimeUtil.pad24HourTimeFormat(schedule.departure),
+                        TimeUtil.pad24HourTimeFormat(schedule.arrival), from, to));
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IllegalStateException(String.format("%s: expected a schedule object but was %s at %s",
+                        source, token, parser.getCurrentLocation()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Read several schedule files in parallel
+     *
+     * @param files       the schedule files in order
+     * @param airports    the airports by code
+     * @param flightCodes the codes seen so far, shared by all the schedule files
+     * @param duplicates  the number of flights with a code seen before
+     * @param peakHeap    the largest sampled heap usage
+     * @return the flights of every file, in file order
+     * @throws IOException           if a file can't be read
+     * @throws IllegalStateException if a file is not an array of schedule records or a record is invalid
+     */
+    private List<List<Flight>> readSchedules(List<Path> files, Map<String, Airport> airports, Set<String> flightCodes,
+                                             AtomicInteger duplicates, LongAccumulator peakHeap) throws IOException {
+        final int loadThreads = planner.getSchedule().getLoadThreads();
+        final int threads = Math.min(files.size(),
+                loadThreads > 0 ? loadThreads : Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("planner-schedule-loader-%d").setDaemon(true).build());
+        try {
+            List<Future<List<Flight>>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(executor.submit(() -> {
+                    List<Flight> buffer = new ArrayList<>();
+                    try (InputStream inputStream = open(file.toString(), SCHEDULE_FILE_PATH)) {
+                        readSchedules(inputStream, file.toString(), airports, flightCodes, duplicates, peakHeap,
+                                buffer::add);
+                    }
+                    return buffer;
+                }));
+            }
+            List<List<Flight>> buffers = new ArrayList<>(files.size());
+            for (Future<List<Flight>> future : futures) {
+                buffers.add(future.get());
+            }
+            return buffers;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("schedule load was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("schedule load failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the schedule record the parser is at, unknown fields are skipped
+     *
+     * @param parser the parser positioned at the start of the record
+     * @return the schedule
+     * @throws IOException if the json can't be read
+     */
+    private static Schedule readSchedule(JsonParser parser) throws IOException {
+        final Schedule schedule = new Schedule();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "code":
+                    schedule.code = parser.getValueAsString();
+                    break;
+                case "from":
+                    schedule.from = parser.getValueAsString();
+                    break;
+                case "to":
+                    schedule.to = parser.getValueAsString();
+                    break;
+                case "departure":
+                    schedule.departure = parser.getValueAsString();
+                    break;
+                case "arrival":
+                    schedule.arrival = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Get the current heap usage
+     * a point in time sample of the whole heap, garbage not yet collected included, the global peak usage of the
+     * memory pools is left alone as it is shared with the rest of the application
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Get a stamp of the airport countries and schedule files
+     * the stamp is made of the location, size and last modification time of every file so it changes when a file is
+     * added, removed, replaced or written, without reading them
+     *
+     * @return the stamp
+     * @throws IOException if a file or resource can't be accessed
+     */
+    public long sourceStamp() throws IOException {
+        final ScheduleProperties properties = planner.getSchedule();
+        final CRC32 stamp = new CRC32();
+        stamp(stamp, properties.getAirportsFile(), AIRPORT_COUNTRIES_FILE_PATH);
+        if (StringUtils.isNotBlank(properties.getScheduleFile())) {
+            for (Path file : ScheduleFiles.list(properties.getScheduleFile())) {
+                stamp(stamp, file.toString(), SCHEDULE_FILE_PATH);
+            }
+        } else {
+            stamp(stamp, null, SCHEDULE_FILE_PATH);
+        }
+        return stamp.getValue();
+    }
+
+    /**
+     * Add the location, size and last modification time of the configured file or bundled resource to a stamp
+     *
+     * @param stamp    the stamp
+     * @param file     the configured file or blank
+     * @param resource the classpath resource
+     * @throws IOException if the file or resource can't be accessed
+     */
+    private static void stamp(CRC32 stamp, String file, String resource) throws IOException {
+        Resource source = StringUtils.isNotBlank(file) ? new FileSystemResource(file)
+                : new ClassPathResource(resource);
+        String description = source.getDescription() + "|" + source.contentLength() + "|" + source.lastModified()
+                + "\n";
+        stamp.update(description.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * {@inheritDoc}
-     * TODO: May be cache flights same as airport in Flights class
+     * every call reads the files again and builds a new graph with its own airport and flight registries, nothing is
+     * shared with the graphs loaded before. The schedule records per second and the peak of the heap usage sampled
+     * during the parse and after the graph is built are logged, the real peak may fall between two samples
      * TODO: Code has to be unique, currently codes are duplicated and needs to clean the data a little bit
      */
     @Override
     public Graph load() throws IOException {
         // first read all the airports
-        final Graph graph = new Graph();
+        final GraphBuilder builder = new GraphBuilder();
+        final ScheduleProperties properties = planner.getSchedule();
+        final String airportsSource = StringUtils.defaultIfBlank(properties.getAirportsFile(),
+                "classpath resource " + AIRPORT_COUNTRIES_FILE_PATH);
+        final String scheduleSource = StringUtils.defaultIfBlank(properties.getScheduleFile(),
+                "classpath resource " + SCHEDULE_FILE_PATH);
 
-        try (InputStream inputStream = new ClassPathResource(AIRPORT_COUNTRIES_FILE_PATH).getInputStream()) {
-            Map<String, String> airports = objectMapper.readValue(inputStream, new TypeReference<Map<String, String>>() {
-            });
-
-            // put everything in global cache
-            for (Map.Entry<String, String> entry : airports.entrySet()) {
-                Airport airport = Airport.fromCode(entry.getKey(), entry.getValue());
-                Airports.add(airport);
+        final long begin = System.nanoTime();
+        final LongAccumulator peakHeap = new LongAccumulator(Math::max, usedHeap());
+        final Map<String, Airport> airports = new HashMap<>();
+        try (InputStream inputStream = open(properties.getAirportsFile(), AIRPORT_COUNTRIES_FILE_PATH);
+             JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            expect(parser, JsonToken.START_OBJECT, airportsSource);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String code = parser.getCurrentName();
+                parser.nextToken();
+                Airport airport = Airport.fromCode(code, parser.getValueAsString());
+                airports.put(airport.getCode(), airport);
                 // add as a node to graph
-                graph.addNode(airport);
+                builder.addNode(airport);
             }
         }
 
-        LOGGER.info("Successfully loaded airports data from classpath resource {}", AIRPORT_COUNTRIES_FILE_PATH);
-
-        try (InputStream inputStream = new ClassPathResource(SCHEDULE_FILE_PATH).getInputStream()) {
-            List<Schedule> schedules = objectMapper.readValue(inputStream, new TypeReference<List<Schedule>>() {
-            });
-            // flights are essentially edges in graph
-            // NOTE: Validation 2 flights shouldn't have the same code
-            for (Schedule schedule : schedules) {
-                validateSchedule(schedule);
+        LOGGER.info("Successfully loaded airports data from {}", airportsSource);
 
-                Airport from = Airports.fromCode(schedule.from);
-                Airport to = Airports.fromCode(schedule.to);
-
-                Flight flight = Flight.fromCode(schedule.code, TimeUtil.pad24HourTimeFormat(schedule.departure),
-                        TimeUtil.pad24HourTimeFormat(schedule.arrival), from, to);
-                graph.addEdge(from, to, flight);
+        // flights are essentially edges in graph
+        // NOTE: Validation 2 flights shouldn't have the same code
+        final Set<String> flightCodes = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicates = new AtomicInteger();
+        int records = 0;
+        final List<Path> scheduleFiles = StringUtils.isNotBlank(properties.getScheduleFile())
+                && ScheduleFiles.isMultiple(properties.getScheduleFile())
+                ? ScheduleFiles.list(properties.getScheduleFile()) : null;
+        if (scheduleFiles == null) {
+            // a single file goes to the builder as it is read
+            try (InputStream inputStream = open(properties.getScheduleFile(), SCHEDULE_FILE_PATH)) {
+                records = readSchedules(inputStream, scheduleSource, airports, flightCodes, duplicates, peakHeap,
+                        flight -> builder.addEdge(flight.getDepartureAirport(), flight.getArrivalAirport(), flight));
+            }
+        } else {
+            if (scheduleFiles.isEmpty()) {
+                throw new IllegalStateException(String.format("no schedule files [%s]", scheduleSource));
             }
+            for (List<Flight> buffer : readSchedules(scheduleFiles, airports, flightCodes, duplicates, peakHeap)) {
+                records += buffer.size();
+                for (Flight flight : buffer) {
+                    builder.addEdge(flight.getDepartureAirport(), flight.getArrivalAirport(), flight);
+                }
+            }
+        }
+        if (duplicates.get() > 0) {
+            LOGGER.warn("{} flights have a duplicated code, a code resolves to the first flight with it",
+                    duplicates.get());
         }
 
-        LOGGER.info("Successfully loaded schedules data from classpath resource {}", SCHEDULE_FILE_PATH);
+        final long nanos = Math.max(1, System.nanoTime() - begin);
+        LOGGER.info("Successfully loaded schedules data from {} ({} files), {} records in {} ms ({} records/s)",
+                scheduleSource, scheduleFiles == null ? 1 : scheduleFiles.size(), records,
+                TimeUnit.NANOSECONDS.toMillis(nanos), records * TimeUnit.SECONDS.toNanos(1) / nanos);
+
+        peakHeap.accumulate(usedHeap());
+        final Graph graph = builder.build();
+        peakHeap.accumulate(usedHeap());
+        LOGGER.info("Built graph with {} airports and {} flights, sampled peak heap {} MB", graph.getAirportCount(),
+                graph.getFlightCount(), peakHeap.get() / (1024 * 1024));
         return graph;
     }
 }
@@ -0,0 +1,101 @@
+package com.mmt.flights.planner.service.route.data.impl;
+
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.properties.ScheduleProperties;
+import com.mmt.flights.planner.service.route.data.DataLoader;
+import com.mmt.flights.planner.service.route.planning.graph.Graph;
+import com.mmt.flights.planner.service.route.planning.graph.GraphSnapshot;
+import com.mmt.flights.planner.util.ValidationUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Concrete implementation of {@link DataLoader} which loads the graph from a binary {@link GraphSnapshot}
+ * The snapshot is memory mapped and used as long as it was written from the current airport countries and schedule
+ * files, otherwise (missing, stale, other format version or corrupt) the files are loaded by the
+ * {@link ResourceFileDataLoader} and the snapshot is written again for the next load. Without a configured snapshot
+ * file, see {@link ScheduleProperties}, every load goes to the {@link ResourceFileDataLoader}
+ * As of version 1.0.0 this is the primary implementation
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Primary
+@Component
+public class SnapshotFileDataLoader implements DataLoader {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFileDataLoader.class);
+
+    /**
+     * The loader of the airport countries and schedule files
+     */
+    @Autowired
+    private ResourceFileDataLoader resourceFileDataLoader;
+
+    /**
+     * The application properties with the snapshot file
+     */
+    @Autowired
+    private Planner planner;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ValidationUtil.assertNotNull(resourceFileDataLoader);
+        ValidationUtil.assertNotNull(planner);
+    }
+
+    /**
+     * {@inheritDoc}
+     * a snapshot that can't be read is logged and replaced, it never fails the load on its own
+     */
+    @Override
+    public Graph load() throws IOException {
+        final String snapshotFile = planner.getSchedule().getSnapshotFile();
+        if (StringUtils.isBlank(snapshotFile)) {
+            return resourceFileDataLoader.load();
+        }
+
+        // stamp the files before loading them, a file changing during the load makes the snapshot stale
+        final Path snapshot = Paths.get(snapshotFile);
+        final long source = resourceFileDataLoader.sourceStamp();
+        if (Files.exists(snapshot)) {
+            long begin = System.currentTimeMillis();
+            try {
+                Graph graph = GraphSnapshot.read(snapshot, source);
+                LOGGER.info("Loaded graph snapshot {} with {} airports and {} flights in {} ms", snapshot,
+                        graph.getAirportCount(), graph.getFlightCount(), System.currentTimeMillis() - begin);
+                return graph;
+            } catch (IOException ex) {
+                LOGGER.warn("Graph snapshot {} not used, loading the schedule files: {}", snapshot, ex.getMessage());
+            }
+        } else {
+            LOGGER.info("No graph snapshot {}, loading the schedule files", snapshot);
+        }
+
+        final Graph graph = resourceFileDataLoader.load();
+        try {
+            long begin = System.currentTimeMillis();
+            long bytes = GraphSnapshot.write(graph, source, snapshot);
+            LOGGER.info("Wrote graph snapshot {} of {} bytes in {} ms", snapshot, bytes,
+                    System.currentTimeMillis() - begin);
+        } catch (IOException ex) {
+            LOGGER.warn("Graph snapshot {} can't be written", snapshot, ex);
+        }
+        return graph;
+    }
+}
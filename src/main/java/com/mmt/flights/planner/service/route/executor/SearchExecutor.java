@@ -0,0 +1,133 @@
+package com.mmt.flights.planner.service.route.executor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mmt.flights.planner.properties.ExecutorProperties;
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor running the searches off the web server worker threads
+ * A fixed number of threads run the searches and at most the configured number of searches wait for a thread, any
+ * more are rejected right away with {@link ServiceOverloadedException} so an overloaded server answers fast instead of
+ * queueing without bound. Queue depth, active threads, wait time and rejections are published as
+ * {@code planner.search.executor.*} metrics
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+public class SearchExecutor implements Executor, DisposableBean {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchExecutor.class);
+
+    /**
+     * The thread pool
+     */
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * Seconds a rejected client is asked to wait before retrying
+     */
+    private final int retryAfterSeconds;
+
+    /**
+     * Time the searches waited for a thread
+     */
+    private final Timer waitTimer;
+
+    /**
+     * Number of rejected searches
+     */
+    private final Counter rejections;
+
+    /**
+     * Default constructor
+     *
+     * @param planner       the application properties
+     * @param meterRegistry the registry to publish the executor metrics to
+     */
+    @Autowired
+    public SearchExecutor(Planner planner, MeterRegistry meterRegistry) {
+        ExecutorProperties properties = planner.getExecutor();
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue = properties.getQueueSize() > 0
+                ? new ArrayBlockingQueue<>(properties.getQueueSize()) : new SynchronousQueue<>();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                new ThreadFactoryBuilder().setNameFormat("planner-search-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+
+        Gauge.builder("planner.search.executor.queue.depth", pool, p -> p.getQueue().size())
+                .description("number of searches waiting for a thread").register(meterRegistry);
+        Gauge.builder("planner.search.executor.active", pool, ThreadPoolExecutor::getActiveCount)
+                .description("number of threads running a search").register(meterRegistry);
+        this.waitTimer = Timer.builder("planner.search.executor.wait")
+                .description("time the searches waited for a thread").register(meterRegistry);
+        this.rejections = Counter.builder("planner.search.executor.rejections")
+                .description("number of searches rejected because the queue was full").register(meterRegistry);
+        LOGGER.info("Searches run on {} threads with a queue of {}", threads, properties.getQueueSize());
+    }
+
+    /**
+     * Run a task on the executor
+     *
+     * @param task the task
+     * @throws ServiceOverloadedException if the queue is full
+     */
+    @Override
+    public void execute(Runnable task) {
+        final long submitted = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                task.run();
+            });
+        } catch (RejectedExecutionException ex) {
+            rejections.increment();
+            throw new ServiceOverloadedException("server is overloaded, retry after " + retryAfterSeconds + " seconds",
+                    retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Compute a value on the executor
+     *
+     * @param task the task computing the value
+     * @param <T>  the value type
+     * @return the future value, completed exceptionally if the task fails
+     * @throws ServiceOverloadedException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, this);
+    }
+
+    /**
+     * Shutdown the thread pool
+     */
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,24 @@
+package com.mmt.flights.planner.service.route.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * The plans for a batch search request
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+@Builder
+public class BatchPlan {
+
+    /**
+     * The result of every search request in request order
+     */
+    private List<BatchPlanItem> plans;
+}
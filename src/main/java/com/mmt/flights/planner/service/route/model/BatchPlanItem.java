@@ -0,0 +1,30 @@
+package com.mmt.flights.planner.service.route.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mmt.flights.planner.api.ApiError;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The result of a single search request of a batch, either a plan or an error
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPlanItem {
+
+    /**
+     * The plan if the search succeeded
+     */
+    private Plan plan;
+
+    /**
+     * The error if the search failed
+     */
+    private ApiError error;
+}
@@ -0,0 +1,22 @@
+package com.mmt.flights.planner.service.route.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Batch route search request
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+public class BatchSearchRequest {
+
+    /**
+     * The search requests
+     */
+    private List<SearchRequest> requests;
+}
@@ -0,0 +1,48 @@
+package com.mmt.flights.planner.service.route.model;
+
+import com.mmt.flights.planner.service.route.planning.graph.ScheduleDelta;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A single flight change of a schedule delta
+ * Adding needs every field, removing needs the code and retiming the code and times. The airports narrow a
+ * remove or retime down to one leg of a flight with several legs
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+public class FlightChange {
+
+    /**
+     * The kind of change
+     */
+    private ScheduleDelta.Type type;
+
+    /**
+     * The flight code
+     */
+    private String code;
+
+    /**
+     * The departure airport code
+     */
+    private String from;
+
+    /**
+     * The arrival airport code
+     */
+    private String to;
+
+    /**
+     * The departure time in HHMM format
+     */
+    private String departure;
+
+    /**
+     * The arrival time in HHMM format
+     */
+    private String arrival;
+}
@@ -1,5 +1,6 @@
 package com.mmt.flights.planner.service.route.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.mmt.flights.planner.service.route.planning.graph.Flight;
 import com.mmt.flights.planner.service.route.planning.graph.Route;
 import lombok.Builder;
@@ -28,4 +29,15 @@ public class Plan {
      * Other cheapest flights
      */
     private List<Route> cheapestFlights;
+
+    /**
+     * The cursor of the next page of cheapest flights, only for paged plans and null if there are no more
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cursor;
+
+    /**
+     * True if the search ran out of its budget, the cheapest flights are the cheapest ones found until then
+     */
+    private boolean partial;
 }
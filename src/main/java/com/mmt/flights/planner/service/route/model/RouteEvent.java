@@ -0,0 +1,50 @@
+package com.mmt.flights.planner.service.route.model;
+
+import com.mmt.flights.planner.service.route.planning.graph.Route;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A single route of a streamed plan
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class RouteEvent {
+
+    /**
+     * The kind of route
+     */
+    private Type type;
+
+    /**
+     * The route, null for {@link Type#PARTIAL}
+     */
+    private Route route;
+
+    /**
+     * The kinds of route of a plan
+     */
+    public enum Type {
+
+        /**
+         * A direct flight, see {@link Plan#getDirectFlights()}
+         */
+        DIRECT,
+
+        /**
+         * One of the cheapest routes, see {@link Plan#getCheapestFlights()}
+         */
+        CHEAPEST,
+
+        /**
+         * The last event if the search ran out of its budget, there may be more cheapest routes, see
+         * {@link Plan#isPartial()}
+         */
+        PARTIAL
+    }
+}
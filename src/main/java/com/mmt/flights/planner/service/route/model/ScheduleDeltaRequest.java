@@ -0,0 +1,22 @@
+package com.mmt.flights.planner.service.route.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Schedule delta request
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+public class ScheduleDeltaRequest {
+
+    /**
+     * The flight changes in order
+     */
+    private List<FlightChange> changes;
+}
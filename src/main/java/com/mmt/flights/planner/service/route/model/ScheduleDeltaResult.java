@@ -0,0 +1,47 @@
+package com.mmt.flights.planner.service.route.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * The outcome of applying a schedule delta
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+@Builder
+public class ScheduleDeltaResult {
+
+    /**
+     * The version of the published schedule
+     */
+    private final long version;
+
+    /**
+     * Number of flights added
+     */
+    private final int added;
+
+    /**
+     * Number of flights removed
+     */
+    private final int removed;
+
+    /**
+     * Number of flights retimed
+     */
+    private final int retimed;
+
+    /**
+     * Codes of the airports the changed flights depart from or arrive at
+     */
+    private final Set<String> affectedAirports;
+
+    /**
+     * Number of cached plans dropped because the delta may affect them
+     */
+    private final int invalidatedPlans;
+}
@@ -27,4 +27,24 @@ public class SearchRequest {
      * Return the top K results
      */
     private Integer k;
+
+    /**
+     * The cursor of the next page of a paged plan
+     */
+    private String cursor;
+
+    /**
+     * Optional wall clock time in millis the search may run, can only tighten the configured deadline
+     */
+    private Long deadlineMillis;
+
+    /**
+     * Optional maximum number of labels the search may expand, can only tighten the configured maximum
+     */
+    private Integer maximumExpansions;
+
+    /**
+     * Optional maximum frontier size of the search, can only tighten the configured maximum
+     */
+    private Integer maximumFrontier;
 }
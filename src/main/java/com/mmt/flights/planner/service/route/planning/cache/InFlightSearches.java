@@ -0,0 +1,238 @@
+package com.mmt.flights.planner.service.route.planning.cache;
+
+import com.mmt.flights.planner.service.route.model.Plan;
+import com.mmt.flights.planner.service.route.planning.graph.Route;
+import com.mmt.flights.planner.util.ValidationUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Single flight coalescing of concurrent identical searches
+ * Concurrent searches of the same origin, destination and schedule version share one running search, the callers
+ * arriving before it starts raise its k to the largest one among them and every caller gets its own slice of the
+ * shared plan. A caller asking for more routes than an already started search computes starts a new search that the
+ * following callers join. An optional admission window makes the leading caller hold the search open before starting
+ * it, so a burst of callers asking for different k costs one search for the largest k, the window is paid by every
+ * search even when no other caller comes. Unlike the {@link PlanCache} this also protects a cold cache or a freshly
+ * loaded schedule
+ * The number of coalesced searches and the searches in flight are published to the meter registry
+ * This class is thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class InFlightSearches {
+
+    /**
+     * Prefix of the meter names
+     */
+    private static final String METRIC_PREFIX = "planner.plan.inflight";
+
+    /**
+     * the running searches
+     */
+    private final ConcurrentMap<Key, Search> searches = new ConcurrentHashMap<>();
+
+    /**
+     * callers answered by a search started by another caller
+     */
+    private final Counter coalesced;
+
+    /**
+     * how long a leading caller admits other callers before starting the search, in nanoseconds
+     */
+    private final long windowNanos;
+
+    /**
+     * Create the in flight searches
+     *
+     * @param windowMillis how long a leading caller admits other callers before starting the search, 0 starts it
+     *                     immediately
+     * @param registry     the meter registry to publish the metrics to
+     */
+    public InFlightSearches(long windowMillis, MeterRegistry registry) {
+        ValidationUtil.assertTrue(windowMillis >= 0, "windowMillis must not be negative");
+        ValidationUtil.assertNotNull(registry, "registry must not be null");
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.coalesced = registry.counter(METRIC_PREFIX + ".coalesced");
+        Gauge.builder(METRIC_PREFIX + ".size", searches, ConcurrentMap::size).register(registry);
+    }
+
+    /**
+     * Get the plan for at most k cheapest routes, joining a running identical search if possible
+     *
+     * @param start       the start airport code
+     * @param destination the destination airport code
+     * @param version     the schedule version
+     * @param k           the number of cheapest routes
+     * @param search      computes the plan for the given number of cheapest routes, it is called by the caller thread
+     *                    with k or a larger k of the joined callers
+     * @return the plan with at most k cheapest routes
+     */
+    public Plan search(String start, String destination, long version, int k, IntFunction<Plan> search) {
+        final Key key = new Key(start, destination, version);
+        while (true) {
+            Search running = searches.get(key);
+            if (running != null && running.join(k)) {
+                coalesced.increment();
+                return slice(running.await(), k);
+            }
+            Search leader = new Search(k);
+            boolean registered = running == null ? searches.putIfAbsent(key, leader) == null
+                    : searches.replace(key, running, leader);
+            if (!registered) {
+                // another caller registered first, try to join it
+                continue;
+            }
+            try {
+                Plan plan = search.apply(leader.start(windowNanos));
+                leader.result.complete(plan);
+                return slice(plan, k);
+            } catch (Throwable th) {
+                // every failure, errors too, must complete the search or the joined callers wait forever
+                leader.result.completeExceptionally(th);
+                throw th;
+            } finally {
+                searches.remove(key, leader);
+            }
+        }
+    }
+
+    /**
+     * Slice a plan to at most k cheapest routes
+     *
+     * @param plan the plan
+     * @param k    the number of cheapest routes
+     * @return the plan itself if it has at most k cheapest routes, otherwise a copy with the first k
+     */
+    private static Plan slice(Plan plan, int k) {
+        List<Route> cheapest = plan.getCheapestFlights();
+        if (cheapest.size() <= k) {
+            return plan;
+        }
+        return Plan.builder().directFlights(plan.getDirectFlights()).cheapestFlights(cheapest.subList(0, k))
+                .partial(plan.isPartial()).build();
+    }
+
+    /**
+     * The search key
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Key {
+
+        /**
+         * the start airport code
+         */
+        private final String start;
+
+        /**
+         * the destination airport code
+         */
+        private final String destination;
+
+        /**
+         * the schedule version
+         */
+        private final long version;
+    }
+
+    /**
+     * A running search shared by its callers
+     */
+    private static final class Search {
+
+        /**
+         * the plan, completed by the caller running the search
+         */
+        private final CompletableFuture<Plan> result = new CompletableFuture<>();
+
+        /**
+         * the largest k of the callers, fixed once the search started
+         */
+        private int k;
+
+        /**
+         * whether the search started
+         */
+        private boolean started;
+
+        /**
+         * Create the search of the leading caller
+         *
+         * @param k the number of cheapest routes of the leading caller
+         */
+        Search(int k) {
+            this.k = k;
+        }
+
+        /**
+         * Join the search
+         *
+         * @param k the number of cheapest routes of the caller
+         * @return true if the search will answer the caller, false if it already started for less routes
+         */
+        synchronized boolean join(int k) {
+            if (!started) {
+                this.k = Math.max(this.k, k);
+                return true;
+            }
+            return k <= this.k;
+        }
+
+        /**
+         * Start the search after the admission window, no caller can raise its k after this
+         *
+         * @param windowNanos how long to admit other callers, in nanoseconds
+         * @return the number of cheapest routes to search
+         */
+        synchronized int start(long windowNanos) {
+            // waiting releases the monitor so the arriving callers can join and raise k
+            final long deadline = System.nanoTime() + windowNanos;
+            long remaining = windowNanos;
+            while (remaining > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+            started = true;
+            return k;
+        }
+
+        /**
+         * Wait for the plan
+         *
+         * @return the plan
+         * @throws RuntimeException the failure of the search
+         * @throws Error           the error of the search
+         */
+        Plan await() {
+            try {
+                return result.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                if (ex.getCause() instanceof Error) {
+                    throw (Error) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+    }
+}
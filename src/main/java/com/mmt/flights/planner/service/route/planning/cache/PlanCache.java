@@ -0,0 +1,217 @@
+package com.mmt.flights.planner.service.route.planning.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mmt.flights.planner.service.route.model.Plan;
+import com.mmt.flights.planner.service.route.planning.graph.Route;
+import com.mmt.flights.planner.util.ValidationUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Bounded in memory cache of route plans
+ * Plans are keyed by the origin and destination airport codes and the schedule version they were computed with, a plan
+ * computed for k routes answers every request for k or less routes by slicing. The cache is bounded by the total number
+ * of routes held, least recently used plans are evicted first
+ * Hits, misses, evictions and size are published to the meter registry (see /actuator/metrics)
+ * This class is thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class PlanCache {
+
+    /**
+     * Prefix of the meter names
+     */
+    private static final String METRIC_PREFIX = "planner.plan.cache";
+
+    /**
+     * the cached plans
+     */
+    private final Cache<Key, Entry> cache;
+
+    /**
+     * requests answered from cache
+     */
+    private final Counter hits;
+
+    /**
+     * requests not answered from cache
+     */
+    private final Counter misses;
+
+    /**
+     * plans evicted because of the size bound
+     */
+    private final Counter evictions;
+
+    /**
+     * Create the cache
+     *
+     * @param maximumRoutes the maximum number of routes held by all cached plans
+     * @param registry      the meter registry to publish the cache metrics to
+     */
+    public PlanCache(long maximumRoutes, MeterRegistry registry) {
+        ValidationUtil.assertTrue(maximumRoutes > 0, "maximumRoutes should be greater than 0");
+        ValidationUtil.assertNotNull(registry, "registry must not be null");
+        this.hits = registry.counter(METRIC_PREFIX + ".gets", "result", "hit");
+        this.misses = registry.counter(METRIC_PREFIX + ".gets", "result", "miss");
+        this.evictions = registry.counter(METRIC_PREFIX + ".evictions");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumRoutes)
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+        Gauge.builder(METRIC_PREFIX + ".size", cache, Cache::size).register(registry);
+    }
+
+    /**
+     * Get the cached plan for at most k cheapest routes
+     *
+     * @param start       the start airport code
+     * @param destination the destination airport code
+     * @param version     the schedule version
+     * @param k           the number of cheapest routes
+     * @return the plan or null if no plan computed for k or more routes is cached
+     */
+    public Plan get(String start, String destination, long version, int k) {
+        Entry entry = cache.getIfPresent(new Key(start, destination, version));
+        if (entry == null || !entry.covers(k)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        List<Route> cheapest = entry.cheapestFlights;
+        return Plan.builder().directFlights(entry.directFlights)
+                .cheapestFlights(cheapest.size() > k ? cheapest.subList(0, k) : cheapest).build();
+    }
+
+    /**
+     * Cache the plan computed for k cheapest routes
+     * a cached plan for more routes is kept
+     *
+     * @param start       the start airport code
+     * @param destination the destination airport code
+     * @param version     the schedule version
+     * @param k           the number of cheapest routes the plan was computed for
+     * @param plan        the plan
+     */
+    public void put(String start, String destination, long version, int k, Plan plan) {
+        Entry entry = new Entry(k, Collections.unmodifiableList(plan.getDirectFlights()),
+                Collections.unmodifiableList(plan.getCheapestFlights()));
+        cache.asMap().merge(new Key(start, destination, version), entry,
+                (current, candidate) -> candidate.k >= current.k ? candidate : current);
+    }
+
+    /**
+     * Move the cached plans of a schedule version to the next version, e.g. when a schedule delta is applied
+     * the plans of pairs the delta may affect are dropped, every other plan is kept for the next version
+     *
+     * @param version  the schedule version of the plans
+     * @param next     the next schedule version
+     * @param affected whether the plans of a (start, destination) pair may be affected
+     * @return the number of plans dropped
+     */
+    public int advance(long version, long next, BiPredicate<String, String> affected) {
+        int dropped = 0;
+        for (Map.Entry<Key, Entry> entry : cache.asMap().entrySet()) {
+            Key key = entry.getKey();
+            if (key.version != version) {
+                continue;
+            }
+            cache.invalidate(key);
+            if (affected.test(key.start, key.destination)) {
+                dropped++;
+            } else {
+                cache.asMap().merge(new Key(key.start, key.destination, next), entry.getValue(),
+                        (current, candidate) -> candidate.k >= current.k ? candidate : current);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Remove all the cached plans, e.g. when the schedule is reloaded
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * The cache key
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Key {
+
+        /**
+         * the start airport code
+         */
+        private final String start;
+
+        /**
+         * the destination airport code
+         */
+        private final String destination;
+
+        /**
+         * the schedule version
+         */
+        private final long version;
+    }
+
+    /**
+     * A cached plan with the k it was computed for
+     */
+    @AllArgsConstructor
+    private static final class Entry {
+
+        /**
+         * the number of cheapest routes the plan was computed for
+         */
+        private final int k;
+
+        /**
+         * the direct flights
+         */
+        private final List<Route> directFlights;
+
+        /**
+         * the cheapest routes, at most k
+         */
+        private final List<Route> cheapestFlights;
+
+        /**
+         * Check if the plan answers a request for k routes
+         * a plan with less than its k routes has all the routes there are
+         *
+         * @param k the number of routes requested
+         * @return true if k is at most the plan k or all routes are known
+         */
+        boolean covers(int k) {
+            return k <= this.k || cheapestFlights.size() < this.k;
+        }
+
+        /**
+         * The weight of the plan in the cache bound
+         *
+         * @return the number of routes plus one for the entry itself
+         */
+        int weight() {
+            return 1 + directFlights.size() + cheapestFlights.size();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.mmt.flights.planner.service.route.planning.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mmt.flights.planner.service.route.planning.graph.Route;
+import com.mmt.flights.planner.util.ValidationUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded store of suspended route searches keyed by an opaque cursor
+ * A paged plan request keeps its search here so that the next page continues the same search instead of searching
+ * the earlier routes again. Searches are evicted when not used for the configured time or when the store is full
+ * (least recently used first). A cursor can be used once, every page gets a new cursor
+ * This class is thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class SearchCursors {
+
+    /**
+     * the suspended searches by cursor
+     */
+    private final Cache<String, Cursor> cursors;
+
+    /**
+     * Create the store
+     *
+     * @param maximumCursors the maximum number of suspended searches
+     * @param ttlSeconds     the seconds a suspended search is kept after it was last used
+     */
+    public SearchCursors(long maximumCursors, long ttlSeconds) {
+        ValidationUtil.assertTrue(maximumCursors > 0, "maximumCursors should be greater than 0");
+        ValidationUtil.assertTrue(ttlSeconds > 0, "ttlSeconds should be greater than 0");
+        this.cursors = CacheBuilder.newBuilder()
+                .maximumSize(maximumCursors)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Suspend a search
+     *
+     * @param version the schedule version the search runs on
+     * @param routes  the search, the next route it returns is the first route of the next page
+     * @return the cursor
+     */
+    public String suspend(long version, Iterator<Route> routes) {
+        String cursor = UUID.randomUUID().toString();
+        cursors.put(cursor, new Cursor(version, routes));
+        return cursor;
+    }
+
+    /**
+     * Take the search of a cursor out of the store
+     *
+     * @param cursor  the cursor
+     * @param version the current schedule version
+     * @return the search or null if the cursor is unknown, expired, already used or of an older schedule
+     */
+    public Iterator<Route> resume(String cursor, long version) {
+        Cursor suspended = cursors.asMap().remove(cursor);
+        if (suspended == null || suspended.getVersion() != version) {
+            return null;
+        }
+        return suspended.getRoutes();
+    }
+
+    /**
+     * Remove all the suspended searches, e.g. when the schedule is reloaded
+     */
+    public void clear() {
+        cursors.invalidateAll();
+    }
+
+    /**
+     * A suspended search
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class Cursor {
+
+        /**
+         * the schedule version the search runs on
+         */
+        private final long version;
+
+        /**
+         * the search
+         */
+        private final Iterator<Route> routes;
+    }
+}
@@ -0,0 +1,284 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compressed sparse row adjacency of the graph airports
+ * outgoing edges of airport i are in range [offsets[i], offsets[i + 1]) and sorted by departure minute, every edge has
+ * the flight id, destination airport id, departure minute and duration in parallel primitive arrays
+ * The adjacency also carries the search helpers that depend on its edges, the {@link LowerBounds} and
+ * {@link Reachability} of every destination and the shortest outgoing flight duration of every airport
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Getter
+final class Adjacency {
+
+    /**
+     * compressed sparse row offsets, outgoing edges of airport i are in range [offsets[i], offsets[i + 1])
+     */
+    private final int[] offsets;
+
+    /**
+     * flight id of every edge, grouped by the start airport
+     */
+    private final int[] edgeFlights;
+
+    /**
+     * destination airport id of every edge, parallel to {@link #edgeFlights}
+     */
+    private final int[] edgeTargets;
+
+    /**
+     * departure minute of day of every edge, parallel to {@link #edgeFlights}, ascending per airport
+     */
+    private final int[] edgeDepartures;
+
+    /**
+     * flight duration in mins of every edge, parallel to {@link #edgeFlights}
+     */
+    private final int[] edgeDurations;
+
+    /**
+     * lower bounds of the remaining cost to every destination using only these edges
+     */
+    private final LowerBounds lowerBounds;
+
+    /**
+     * reachability of every destination using only these edges
+     */
+    private final Reachability reachability;
+
+    /**
+     * shortest outgoing flight duration of every airport or {@link Integer#MAX_VALUE} if it has no edges
+     */
+    private final int[] minDurations;
+
+    /**
+     * Create the adjacency and compute its lower bounds and reachability
+     *
+     * @param offsets        the compressed sparse row offsets
+     * @param edgeFlights    the flight id of every edge
+     * @param edgeTargets    the destination airport id of every edge
+     * @param edgeDepartures the departure minute of day of every edge
+     * @param edgeDurations  the flight duration in mins of every edge
+     */
+    Adjacency(int[] offsets, int[] edgeFlights, int[] edgeTargets, int[] edgeDepartures, int[] edgeDurations) {
+        this(offsets, edgeFlights, edgeTargets, edgeDepartures, edgeDurations, null, null);
+    }
+
+    /**
+     * Create the adjacency
+     *
+     * @param offsets        the compressed sparse row offsets
+     * @param edgeFlights    the flight id of every edge
+     * @param edgeTargets    the destination airport id of every edge
+     * @param edgeDepartures the departure minute of day of every edge
+     * @param edgeDurations  the flight duration in mins of every edge
+     * @param lowerBounds    the lower bounds that still hold for the edges or null to compute them
+     * @param reachability   the reachability that still holds for the edges or null to compute it
+     */
+    private Adjacency(int[] offsets, int[] edgeFlights, int[] edgeTargets, int[] edgeDepartures, int[] edgeDurations,
+                      LowerBounds lowerBounds, Reachability reachability) {
+        this.offsets = offsets;
+        this.edgeFlights = edgeFlights;
+        this.edgeTargets = edgeTargets;
+        this.edgeDepartures = edgeDepartures;
+        this.edgeDurations = edgeDurations;
+
+        final int airportCount = offsets.length - 1;
+        this.lowerBounds = lowerBounds != null ? lowerBounds
+                : new LowerBounds(airportCount, offsets, edgeTargets, edgeDurations);
+        this.reachability = reachability != null ? reachability : new Reachability(airportCount, offsets, edgeTargets);
+        this.minDurations = new int[airportCount];
+        for (int airport = 0; airport < airportCount; airport++) {
+            int min = Integer.MAX_VALUE;
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                min = Math.min(min, edgeDurations[e]);
+            }
+            minDurations[airport] = min;
+        }
+    }
+
+    /**
+     * Get the number of edges
+     *
+     * @return the edge count
+     */
+    int getEdgeCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * Keep only the edges between airports of the same country
+     * every airport reachable from an airport of country c in the result is in country c, so a domestic search needs
+     * no country check. The departure order of every airport is kept
+     *
+     * @param airportCountries the interned country id of every airport
+     * @return the domestic adjacency
+     */
+    Adjacency domestic(int[] airportCountries) {
+        final int airportCount = offsets.length - 1;
+        int[] domesticOffsets = new int[airportCount + 1];
+        for (int airport = 0; airport < airportCount; airport++) {
+            int count = 0;
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                if (airportCountries[edgeTargets[e]] == airportCountries[airport]) {
+                    count++;
+                }
+            }
+            domesticOffsets[airport + 1] = domesticOffsets[airport] + count;
+        }
+
+        final int count = domesticOffsets[airportCount];
+        int[] flights = new int[count];
+        int[] targets = new int[count];
+        int[] departures = new int[count];
+        int[] durations = new int[count];
+        int slot = 0;
+        for (int airport = 0; airport < airportCount; airport++) {
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                if (airportCountries[edgeTargets[e]] == airportCountries[airport]) {
+                    flights[slot] = edgeFlights[e];
+                    targets[slot] = edgeTargets[e];
+                    departures[slot] = edgeDepartures[e];
+                    durations[slot++] = edgeDurations[e];
+                }
+            }
+        }
+        return new Adjacency(domesticOffsets, flights, targets, departures, durations);
+    }
+
+    /**
+     * Copy this adjacency with the timetables of some airports replaced (copy on write)
+     * the edges of every other airport are copied as they are. If no airport got a flight to an airport it had no
+     * flight to or a shorter flight to an airport than before, every route costs at least as much as before and the
+     * lower bounds and reachability of this adjacency still hold (consistent and over approximating), otherwise they
+     * are computed for the new edges
+     *
+     * @param timetables the flight ids of every replaced timetable in departure order, null for unchanged airports
+     * @param targets    the destination airport id of every flight of the replaced timetables, parallel to timetables
+     * @param flights    the flights indexed by flight id
+     * @return the patched adjacency or this adjacency if no timetable differs
+     */
+    Adjacency patch(int[][] timetables, int[][] targets, Flight[] flights) {
+        final int airportCount = offsets.length - 1;
+        boolean[] replaced = new boolean[airportCount];
+        boolean changed = false;
+        boolean bounded = true;
+        int[] patchedOffsets = new int[airportCount + 1];
+        for (int airport = 0; airport < airportCount; airport++) {
+            replaced[airport] = timetables[airport] != null && !sameTimetable(airport, timetables[airport], flights);
+            if (replaced[airport]) {
+                changed = true;
+                bounded = bounded && noShorterFlights(airport, timetables[airport], targets[airport], flights);
+            }
+            int count = replaced[airport] ? timetables[airport].length : offsets[airport + 1] - offsets[airport];
+            patchedOffsets[airport + 1] = patchedOffsets[airport] + count;
+        }
+        if (!changed) {
+            return this;
+        }
+
+        final int count = patchedOffsets[airportCount];
+        int[] patchedFlights = new int[count];
+        int[] patchedTargets = new int[count];
+        int[] departures = new int[count];
+        int[] durations = new int[count];
+        for (int airport = 0; airport < airportCount; airport++) {
+            int slot = patchedOffsets[airport];
+            if (!replaced[airport]) {
+                int from = offsets[airport];
+                int length = offsets[airport + 1] - from;
+                System.arraycopy(edgeFlights, from, patchedFlights, slot, length);
+                System.arraycopy(edgeTargets, from, patchedTargets, slot, length);
+                System.arraycopy(edgeDepartures, from, departures, slot, length);
+                System.arraycopy(edgeDurations, from, durations, slot, length);
+                continue;
+            }
+            for (int i = 0; i < timetables[airport].length; i++) {
+                Flight flight = flights[timetables[airport][i]];
+                patchedFlights[slot + i] = timetables[airport][i];
+                patchedTargets[slot + i] = targets[airport][i];
+                departures[slot + i] = flight.getDepartureMinute();
+                durations[slot + i] = flight.getDuration();
+            }
+        }
+        return new Adjacency(patchedOffsets, patchedFlights, patchedTargets, departures, durations,
+                bounded ? lowerBounds : null, bounded ? reachability : null);
+    }
+
+    /**
+     * Check if a timetable has exactly the edges of an airport
+     *
+     * @param airport   the airport id
+     * @param timetable the flight ids of the timetable in departure order
+     * @param flights   the flights indexed by flight id
+     * @return true if the flights, departures and durations are the same
+     */
+    private boolean sameTimetable(int airport, int[] timetable, Flight[] flights) {
+        if (timetable.length != offsets[airport + 1] - offsets[airport]) {
+            return false;
+        }
+        for (int i = 0, e = offsets[airport]; i < timetable.length; i++, e++) {
+            Flight flight = flights[timetable[i]];
+            if (edgeFlights[e] != timetable[i] || edgeDepartures[e] != flight.getDepartureMinute()
+                    || edgeDurations[e] != flight.getDuration()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if every flight of a timetable is at least as long as the shortest flight of the airport to the same
+     * airport before
+     *
+     * @param airport   the airport id
+     * @param timetable the flight ids of the timetable
+     * @param targets   the destination airport id of every flight of the timetable
+     * @param flights   the flights indexed by flight id
+     * @return false if the timetable flies to a new airport or has a shorter flight to an airport
+     */
+    private boolean noShorterFlights(int airport, int[] timetable, int[] targets, Flight[] flights) {
+        Map<Integer, Integer> shortest = new HashMap<>();
+        for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+            shortest.merge(edgeTargets[e], edgeDurations[e], Math::min);
+        }
+        for (int i = 0; i < timetable.length; i++) {
+            Integer duration = shortest.get(targets[i]);
+            if (duration == null || flights[timetable[i]].getDuration() < duration) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binary search the first edge of the airport timetable departing at or after the given minute
+     * if every edge departs earlier the first edge is returned (next day)
+     *
+     * @param from   the first edge of the airport
+     * @param to     the end (exclusive) of the airport edges
+     * @param minute the minute of day
+     * @return the edge
+     */
+    int firstDeparture(int from, int to, int minute) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (edgeDepartures[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == to ? from : low;
+    }
+}
@@ -0,0 +1,256 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
+import static com.mmt.flights.planner.ApiConstants.MINIMUM_LAYOVER_TIME_MINS;
+
+/**
+ * Connection scan implementation of {@link SearchEngine}
+ * All the flights (connections) of the graph are kept in a single array sorted by departure minute with columnar
+ * primitive arrays for start, destination, departure, arrival and duration
+ * The schedule is daily cyclic and the start time is free so a query runs one sequential scan over the connection
+ * array per hop (round). Round i boards the i-th flight of the route from the labels (partial routes) that arrived at
+ * an airport in round i - 1, labels are bucketed per airport and sorted so that the best candidates are found first
+ * <p>
+ * Every connection keeps at most k labels per round. This is exact because the cost of extending a label only depends
+ * on the connection it arrived with, and routes of at most {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS}
+ * flights which never board back to start and never go through destination can not visit an airport twice, the
+ * engine refuses to be built for longer routes
+ * <p>
+ * The search honours a {@link SearchBudget}, an expansion is a connection boarded from the labels waiting at its
+ * airport and the frontier is the labels of the current and the next round. A search over budget returns the cheapest
+ * routes found so far, as routes are only final after the last round they may not be the cheapest ones
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class ConnectionScanEngine implements SearchEngine {
+
+    /**
+     * The graph the connections are built from
+     */
+    private final Graph graph;
+
+    /**
+     * start airport id of every connection
+     */
+    private final int[] starts;
+
+    /**
+     * destination airport id of every connection
+     */
+    private final int[] destinations;
+
+    /**
+     * departure minute of day of every connection, ascending
+     */
+    private final int[] departures;
+
+    /**
+     * arrival minute of day of every connection
+     */
+    private final int[] arrivals;
+
+    /**
+     * flight duration in mins of every connection
+     */
+    private final int[] durations;
+
+    /**
+     * flight id of every connection
+     */
+    private final int[] flights;
+
+    /**
+     * Create a connection scan engine for the graph
+     *
+     * @param graph the graph
+     * @throws IllegalStateException if routes may have more flights than labels can take without visiting an airport
+     *                               twice
+     */
+    public ConnectionScanEngine(Graph graph) {
+        if (MAXIMUM_HOPS > Label.MAXIMUM_LOOP_FREE_HOPS) {
+            throw new IllegalStateException(String.format("connection scan supports routes of at most %d flights",
+                    Label.MAXIMUM_LOOP_FREE_HOPS));
+        }
+        this.graph = graph;
+
+        final Adjacency adjacency = graph.getAdjacency();
+        final int[] offsets = adjacency.getOffsets();
+        final int[] edgeTargets = adjacency.getEdgeTargets();
+        final int[] edgeDepartures = adjacency.getEdgeDepartures();
+        final int count = edgeTargets.length;
+
+        int[] edgeStarts = new int[count];
+        for (int airport = 0; airport < graph.getAirportCount(); airport++) {
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                edgeStarts[e] = airport;
+            }
+        }
+
+        // sort the edges by departure, ties broken by edge position to keep the order stable
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(e -> edgeDepartures[e]).thenComparingInt(e -> e));
+
+        this.starts = new int[count];
+        this.destinations = new int[count];
+        this.departures = new int[count];
+        this.arrivals = new int[count];
+        this.durations = new int[count];
+        this.flights = new int[count];
+        for (int i = 0; i < count; i++) {
+            int e = order[i];
+            Flight flight = graph.getFlights()[adjacency.getEdgeFlights()[e]];
+            starts[i] = edgeStarts[e];
+            destinations[i] = edgeTargets[e];
+            departures[i] = edgeDepartures[e];
+            arrivals[i] = flight.getArrivalMinute();
+            durations[i] = adjacency.getEdgeDurations()[e];
+            flights[i] = adjacency.getEdgeFlights()[e];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k) {
+        return topKCheapestFlights(start, destination, k, SearchBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        final int s = graph.idOf(start);
+        final int d = graph.idOf(destination);
+        if (s < 0 || d < 0 || !graph.routable(s, d)) {
+            return new ArrayList<>();
+        }
+        final int country = graph.domesticCountry(s, d);
+        final int[] countries = graph.getAirportCountries();
+
+        // round 1, every connection leaving start except the direct ones
+        List<Label> round = new ArrayList<>();
+        for (int c = 0; c < departures.length; c++) {
+            if (starts[c] == s && destinations[c] != d && (country < 0 || countries[destinations[c]] == country)) {
+                round.add(new Label(durations[c], c, null));
+            }
+        }
+
+        final TopK results = new TopK(k);
+        int expansions = 0;
+        for (int hop = 2; hop <= MAXIMUM_HOPS && !round.isEmpty() && !budget.isExhausted(); hop++) {
+            final boolean last = hop == MAXIMUM_HOPS;
+            final List<Label>[] buckets = bucket(round);
+            final List<Label> next = new ArrayList<>();
+
+            for (int c = 0; c < departures.length && !budget.isExhausted(); c++) {
+                final List<Label> bucket = buckets[starts[c]];
+                final int target = destinations[c];
+                if (bucket == null || target == s || (last && target != d)) {
+                    continue;
+                }
+                if (country >= 0 && countries[target] != country) {
+                    // we don't want an international detour
+                    continue;
+                }
+                if (budget.exhausted(++expansions, round.size() + next.size())) {
+                    break;
+                }
+                scan(c, bucket, target == d ? results : null, k, results, next);
+            }
+            round = next;
+        }
+
+        List<Route> routes = new ArrayList<>();
+        for (Label label : results.getLabels()) {
+            routes.add(toRoute(label));
+        }
+        return routes;
+    }
+
+    /**
+     * Board connection c from every label in the bucket and keep the k cheapest
+     * Labels in the bucket are sorted by their lower bound so the scan stops as soon as no label can be better
+     *
+     * @param c           the connection
+     * @param bucket      the labels that arrived at the connection start airport
+     * @param destination the destination results if the connection reaches destination otherwise null
+     * @param k           how many labels to keep
+     * @param results     the destination results, used to prune labels which can never be in top k
+     * @param next        the labels of the next round
+     */
+    private void scan(int c, List<Label> bucket, TopK destination, int k, TopK results, List<Label> next) {
+        final int departure = departures[c];
+        final int duration = durations[c];
+        final TopK best = destination != null ? destination : new TopK(k);
+
+        for (Label label : bucket) {
+            int bound = Math.min(best.bound(), results.bound());
+            if (label.base + departure + duration >= bound) {
+                break;
+            }
+            int cost = label.cost + TimeUtil.layoverInMins(arrivals[label.connection], departure,
+                    MINIMUM_LAYOVER_TIME_MINS) + duration;
+            if (cost < bound) {
+                best.offer(new Label(cost, c, label));
+            }
+        }
+        if (destination == null) {
+            next.addAll(best.getLabels());
+        }
+    }
+
+    /**
+     * Group the labels of a round by the airport they arrived at
+     * each bucket is sorted by {@link Label#base} ascending
+     *
+     * @param round the labels
+     * @return the buckets indexed by airport id, null where no label arrived
+     */
+    @SuppressWarnings("unchecked")
+    private List<Label>[] bucket(List<Label> round) {
+        List<Label>[] buckets = new List[graph.getAirportCount()];
+        for (Label label : round) {
+            int airport = destinations[label.connection];
+            if (buckets[airport] == null) {
+                buckets[airport] = new ArrayList<>();
+            }
+            label.base = label.cost + MINIMUM_LAYOVER_TIME_MINS
+                    - (arrivals[label.connection] + MINIMUM_LAYOVER_TIME_MINS) % TimeUtil.MINS_IN_DAY;
+            buckets[airport].add(label);
+        }
+        for (List<Label> bucket : buckets) {
+            if (bucket != null) {
+                bucket.sort(Comparator.comparingInt(label -> label.base));
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Materialize the route ending at the given label by walking the parent pointers
+     *
+     * @param label the label at destination
+     * @return the route with flights in travel order
+     */
+    private Route toRoute(Label label) {
+        Flight[] path = new Flight[label.hops];
+        for (Label node = label; node != null; node = node.parent) {
+            path[node.hops - 1] = graph.getFlights()[flights[node.connection]];
+        }
+        return Route.builder().cost(label.cost).flights(Arrays.asList(path)).build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Origin destination index of the direct flights
+ * Every airport has the airports it flies to sorted by airport id, each with the precomputed single flight routes in
+ * departure order. A lookup is a binary search in the start airport targets and returns a shared unmodifiable list
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+final class DirectFlightIndex {
+
+    /**
+     * targets of airport i are in range [targetOffsets[i], targetOffsets[i + 1])
+     */
+    private final int[] targetOffsets;
+
+    /**
+     * the airport every target group flies to, ascending per airport
+     */
+    private final int[] targets;
+
+    /**
+     * the direct routes of every target group, parallel to {@link #targets}
+     */
+    private final List<List<Route>> routes;
+
+    /**
+     * Build the index
+     *
+     * @param adjacency the adjacency with every flight
+     * @param flights   the flights indexed by flight id
+     */
+    DirectFlightIndex(Adjacency adjacency, Flight[] flights) {
+        this(adjacency, flights, null, null);
+    }
+
+    /**
+     * Build the index of a patched adjacency (copy on write)
+     * the target groups of the unchanged airports are shared with the previous index, only the changed airports are
+     * indexed again
+     *
+     * @param adjacency the patched adjacency with every flight
+     * @param flights   the flights indexed by flight id
+     * @param previous  the index of the adjacency before the patch
+     * @param changed   whether the timetable of every airport changed
+     */
+    DirectFlightIndex(Adjacency adjacency, Flight[] flights, DirectFlightIndex previous, boolean[] changed) {
+        final int[] offsets = adjacency.getOffsets();
+        final int[] edgeTargets = adjacency.getEdgeTargets();
+        final int airportCount = offsets.length - 1;
+
+        this.targetOffsets = new int[airportCount + 1];
+        List<Integer> targetList = new ArrayList<>();
+        this.routes = new ArrayList<>();
+        for (int airport = 0; airport < airportCount; airport++) {
+            targetOffsets[airport] = targetList.size();
+            if (previous != null && !changed[airport]) {
+                for (int t = previous.targetOffsets[airport]; t < previous.targetOffsets[airport + 1]; t++) {
+                    targetList.add(previous.targets[t]);
+                    routes.add(previous.routes.get(t));
+                }
+                continue;
+            }
+            // edges are in departure order, a stable sort by target keeps that order within every target
+            Integer[] order = new Integer[offsets[airport + 1] - offsets[airport]];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = offsets[airport] + i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(edgeTargets[a], edgeTargets[b]));
+
+            List<Route> group = null;
+            for (int i = 0; i < order.length; i++) {
+                int e = order[i];
+                if (i == 0 || edgeTargets[e] != edgeTargets[order[i - 1]]) {
+                    group = new ArrayList<>();
+                    targetList.add(edgeTargets[e]);
+                    routes.add(Collections.unmodifiableList(group));
+                }
+                Flight flight = flights[adjacency.getEdgeFlights()[e]];
+                group.add(Route.builder().cost(adjacency.getEdgeDurations()[e])
+                        .flights(Collections.singletonList(flight)).build());
+            }
+        }
+        targetOffsets[airportCount] = targetList.size();
+        this.targets = targetList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Get the direct routes from start to destination
+     *
+     * @param start       the start airport id
+     * @param destination the destination airport id
+     * @return the unmodifiable routes in departure order, empty if there is no direct flight
+     */
+    List<Route> get(int start, int destination) {
+        int low = targetOffsets[start];
+        int high = targetOffsets[start + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (targets[mid] < destination) {
+                low = mid + 1;
+            } else if (targets[mid] > destination) {
+                high = mid - 1;
+            } else {
+                return routes.get(mid);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the number of origin destination pairs with a direct flight
+     *
+     * @return the pair count
+     */
+    int size() {
+        return targets.length;
+    }
+}
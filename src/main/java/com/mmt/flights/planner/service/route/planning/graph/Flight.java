@@ -1,5 +1,7 @@
 package com.mmt.flights.planner.service.route.planning.graph;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mmt.flights.planner.util.TimeUtil;
 import com.mmt.flights.planner.util.ValidationUtil;
 import lombok.Getter;
 
@@ -28,6 +30,24 @@ public class Flight {
      */
     private final String arrival;
 
+    /**
+     * The departure time as minute of the day, pre parsed from {@link #departure}
+     */
+    @JsonIgnore
+    private final int departureMinute;
+
+    /**
+     * The arrival time as minute of the day, pre parsed from {@link #arrival}
+     */
+    @JsonIgnore
+    private final int arrivalMinute;
+
+    /**
+     * The flight duration in mins, wraps around midnight
+     */
+    @JsonIgnore
+    private final int duration;
+
     /**
      * The departure airport
      */
@@ -49,6 +69,9 @@ public class Flight {
         this.code = code;
         this.departure = departure;
         this.arrival = arrival;
+        this.departureMinute = TimeUtil.toMinuteOfDay(departure);
+        this.arrivalMinute = TimeUtil.toMinuteOfDay(arrival);
+        this.duration = TimeUtil.differenceInMins(departureMinute, arrivalMinute);
         this.departureAirport = departureAirport;
         this.arrivalAirport = arrivalAirport;
     }
@@ -2,25 +2,22 @@ package com.mmt.flights.planner.service.route.planning.graph;
 
 import com.mmt.flights.planner.util.TimeUtil;
 import com.mmt.flights.planner.util.ValidationUtil;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
 import static com.mmt.flights.planner.ApiConstants.MINIMUM_LAYOVER_TIME_MINS;
@@ -29,117 +26,346 @@ import static com.mmt.flights.planner.ApiConstants.MINIMUM_LAYOVER_TIME_MINS;
  * Represents a graph
  * A graph has node and edges
  * nodes are represented as airports and edges are flights between airports
+ * The graph is frozen, airports and flights are identified by dense int ids and the adjacency is kept as
+ * compressed sparse row arrays so that traversal walks contiguous primitive arrays. Flight changes are applied copy on
+ * write by {@link #apply(ScheduleDelta)} which returns a new graph
  *
  * @author ritesh
  * @version 1.0.0
  */
-public class Graph {
+public class Graph implements SearchEngine {
 
     /**
-     * Private static class level logger
+     * Whether the search keeps at most k settled labels per (arrival flight, hops)
+     * The extensions of a label depend only on the flight it arrived with as long as the visited airports of its path
+     * can't block an extension. Routes never go back to start and never go through destination, so with up to 3 flights
+     * (start - a - b - destination) no airport can be visited twice whatever the path was and the bound is exact
      */
-    private static final Logger LOGGER = LoggerFactory.getLogger(Graph.class);
+    private static final boolean BOUNDED_LABELS = MAXIMUM_HOPS <= 3;
 
     /**
-     * internally represents an edge from a node
-     * A edge has destination airport and a flight that connects directly from start to destination
-     * This class is just a holder for destination airport and flight between a start and destination airport
+     * all the airports (nodes), index is the airport id
      */
-    @Getter
-    private class Edge {
+    @Getter(AccessLevel.PACKAGE)
+    private final Airport[] airports;
 
-        /**
-         * the destination airport
-         */
-        private final Airport destination;
+    /**
+     * airport code to airport id
+     */
+    private final Map<String, Integer> airportIds;
 
-        /**
-         * the flight from start to destination
-         */
-        private final Flight flight;
+    /**
+     * interned country id of every airport, index is the airport id
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] airportCountries;
 
-        /**
-         * Create an edge instance
-         *
-         * @param destination the destination
-         * @param flight      the flight (connection from start node to destination)
-         */
-        public Edge(Airport destination, Flight flight) {
-            this.destination = destination;
-            this.flight = flight;
-        }
+    /**
+     * all the flights (edges), index is the flight id. The id of a flight removed by a delta is null
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final Flight[] flights;
+
+    /**
+     * flight code to flight id, the first flight added with the code if codes are duplicated
+     */
+    private final Map<String, Integer> flightIds;
+
+    /**
+     * compressed sparse row adjacency with every flight, the edges of every airport are sorted by departure minute
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final Adjacency adjacency;
+
+    /**
+     * compressed sparse row adjacency with only the flights between airports of the same country
+     * domestic routes are searched here so they never look at an international flight
+     */
+    private final Adjacency domestic;
+
+    /**
+     * the direct flights of every origin destination pair
+     */
+    private final DirectFlightIndex directFlights;
+
+    /**
+     * instantiate a new frozen graph object
+     * use {@link GraphBuilder} to create graph instances
+     *
+     * @param airports         the airports indexed by airport id
+     * @param airportIds       the airport code to airport id mapping
+     * @param airportCountries the interned country id of every airport
+     * @param flights          the flights indexed by flight id
+     * @param flightIds        the flight code to flight id mapping
+     * @param adjacency        the adjacency with every flight
+     * @param domestic         the adjacency with only domestic flights
+     * @param directFlights    the direct flights of every origin destination pair
+     */
+    Graph(Airport[] airports, Map<String, Integer> airportIds, int[] airportCountries, Flight[] flights,
+          Map<String, Integer> flightIds, Adjacency adjacency, Adjacency domestic, DirectFlightIndex directFlights) {
+        this.airports = airports;
+        this.airportIds = airportIds;
+        this.airportCountries = airportCountries;
+        this.flights = flights;
+        this.flightIds = flightIds;
+        this.adjacency = adjacency;
+        this.domestic = domestic;
+        this.directFlights = directFlights;
+    }
+
+    /**
+     * Get the number of airports (nodes) in this graph
+     *
+     * @return the airport count
+     */
+    public int getAirportCount() {
+        return airports.length;
+    }
+
+    /**
+     * Get the number of flights (edges) in this graph
+     *
+     * @return the flight count
+     */
+    public int getFlightCount() {
+        return adjacency.getEdgeCount();
     }
 
     /**
-     * Graph represented as adjacency list
+     * Get an airport of this graph using the code
+     *
+     * @param code the airport code
+     * @return the airport or null if it is not part of this graph
      */
-    private Map<Airport, Set<Edge>> graph;
+    public Airport getAirport(String code) {
+        Integer id = code == null ? null : airportIds.get(code);
+        return id == null ? null : airports[id];
+    }
+
+    /**
+     * Get a flight of this graph using the code
+     * if codes are duplicated the first flight added with the code is returned
+     *
+     * @param code the flight code
+     * @return the flight or null if it is not part of this graph
+     */
+    public Flight getFlight(String code) {
+        Integer id = code == null ? null : flightIds.get(code);
+        return id == null ? null : flights[id];
+    }
+
+    /**
+     * Apply a batch of flight changes copy on write
+     * this graph is not modified, the new graph shares the airports, the unchanged flights and the timetables of every
+     * airport whose departures didn't change. Only the timetables of the departure airports of changed flights are
+     * sorted again, the direct flights of the other airports are shared and the search helpers of the adjacencies are
+     * computed for the new edges. Added flights get new flight ids, the ids of removed flights stay unused until the
+     * next full load. The changes are applied in order, the batch is applied completely or not at all
+     *
+     * @param delta the flight changes
+     * @return the update with the new graph and the airports the changes touched
+     * @throws IllegalArgumentException if a change refers to an unknown airport or flight, adds an existing leg or
+     *                                  retimes a flight with several legs without naming the leg
+     */
+    public ScheduleUpdate apply(ScheduleDelta delta) {
+        ValidationUtil.assertNotNull(delta, "delta must not be null");
+        int additions = 0;
+        Map<String, List<Integer>> legs = new HashMap<>();
+        for (ScheduleDelta.Change change : delta.getChanges()) {
+            if (change.getType() == ScheduleDelta.Type.ADD) {
+                additions++;
+            }
+            legs.put(change.getCode(), new ArrayList<>());
+        }
+        final Flight[] patched = Arrays.copyOf(flights, flights.length + additions);
+
+        // the legs of every code the delta refers to
+        for (int i = 0; i < flights.length; i++) {
+            List<Integer> codeLegs = flights[i] != null ? legs.get(flights[i].getCode()) : null;
+            if (codeLegs != null) {
+                codeLegs.add(i);
+            }
+        }
+
+        boolean[] changed = new boolean[airports.length];
+        Set<Long> changedLegs = new LinkedHashSet<>();
+        Set<String> affectedAirports = new TreeSet<>();
+        int size = flights.length;
+        int added = 0;
+        int removed = 0;
+        int retimed = 0;
+        for (ScheduleDelta.Change change : delta.getChanges()) {
+            final String code = change.getCode();
+            List<Integer> codeLegs = legs.get(code);
+            List<Integer> matched = new ArrayList<>();
+            for (int id : codeLegs) {
+                if (change.matches(patched[id])) {
+                    matched.add(id);
+                }
+            }
+
+            switch (change.getType()) {
+                case ADD:
+                    Airport from = getAirport(change.getFrom());
+                    Airport to = getAirport(change.getTo());
+                    ValidationUtil.assertNotNull(from, "unknown airport " + change.getFrom());
+                    ValidationUtil.assertNotNull(to, "unknown airport " + change.getTo());
+                    ValidationUtil.assertTrue(from != to, "flight " + code + " must not depart from and arrive at "
+                            + from.getCode());
+                    ValidationUtil.assertTrue(matched.isEmpty(), "flight " + code + " from " + from.getCode() + " to "
+                            + to.getCode() + " already exists");
+                    patched[size] = Flight.fromCode(code, TimeUtil.pad24HourTimeFormat(change.getDeparture()),
+                            TimeUtil.pad24HourTimeFormat(change.getArrival()), from, to);
+                    touch(patched[size], changed, changedLegs, affectedAirports);
+                    codeLegs.add(size++);
+                    added++;
+                    break;
+                case REMOVE:
+                    ValidationUtil.assertTrue(!matched.isEmpty(), "unknown flight " + describe(change));
+                    for (int id : matched) {
+                        touch(patched[id], changed, changedLegs, affectedAirports);
+                        patched[id] = null;
+                    }
+                    codeLegs.removeAll(matched);
+                    removed += matched.size();
+                    break;
+                case RETIME:
+                default:
+                    ValidationUtil.assertTrue(!matched.isEmpty(), "unknown flight " + describe(change));
+                    ValidationUtil.assertTrue(matched.size() == 1, "flight " + describe(change) + " has "
+                            + matched.size() + " legs, from and to must name the leg to retime");
+                    Flight current = patched[matched.get(0)];
+                    patched[matched.get(0)] = Flight.fromCode(code, TimeUtil.pad24HourTimeFormat(change.getDeparture()),
+                            TimeUtil.pad24HourTimeFormat(change.getArrival()), current.getDepartureAirport(),
+                            current.getArrivalAirport());
+                    touch(current, changed, changedLegs, affectedAirports);
+                    retimed++;
+                    break;
+            }
+        }
+
+        // the new timetables of the changed airports in (departure, flight id) order, the order of a full build
+        Map<Integer, List<Integer>> departures = new HashMap<>();
+        for (int airport = 0; airport < airports.length; airport++) {
+            if (changed[airport]) {
+                List<Integer> timetable = new ArrayList<>();
+                for (int e = adjacency.getOffsets()[airport]; e < adjacency.getOffsets()[airport + 1]; e++) {
+                    if (patched[adjacency.getEdgeFlights()[e]] != null) {
+                        timetable.add(adjacency.getEdgeFlights()[e]);
+                    }
+                }
+                departures.put(airport, timetable);
+            }
+        }
+        for (int id = flights.length; id < size; id++) {
+            if (patched[id] != null) {
+                departures.get(idOf(patched[id].getDepartureAirport())).add(id);
+            }
+        }
+        int[][] timetables = new int[airports.length][];
+        int[][] targets = new int[airports.length][];
+        int[][] domesticTimetables = new int[airports.length][];
+        int[][] domesticTargets = new int[airports.length][];
+        for (Map.Entry<Integer, List<Integer>> entry : departures.entrySet()) {
+            final int airport = entry.getKey();
+            List<Integer> timetable = entry.getValue();
+            timetable.sort(Comparator.comparingInt((Integer id) -> patched[id].getDepartureMinute())
+                    .thenComparingInt(id -> id));
+            timetables[airport] = new int[timetable.size()];
+            targets[airport] = new int[timetable.size()];
+            int domesticCount = 0;
+            for (int i = 0; i < timetable.size(); i++) {
+                timetables[airport][i] = timetable.get(i);
+                targets[airport][i] = idOf(patched[timetable.get(i)].getArrivalAirport());
+                if (airportCountries[targets[airport][i]] == airportCountries[airport]) {
+                    domesticCount++;
+                }
+            }
+            domesticTimetables[airport] = new int[domesticCount];
+            domesticTargets[airport] = new int[domesticCount];
+            for (int i = 0, slot = 0; i < timetable.size(); i++) {
+                if (airportCountries[targets[airport][i]] == airportCountries[airport]) {
+                    domesticTimetables[airport][slot] = timetables[airport][i];
+                    domesticTargets[airport][slot++] = targets[airport][i];
+                }
+            }
+        }
+
+        Adjacency patchedAdjacency = adjacency.patch(timetables, targets, patched);
+        Adjacency patchedDomestic = domestic.patch(domesticTimetables, domesticTargets, patched);
+        DirectFlightIndex patchedDirectFlights = new DirectFlightIndex(patchedAdjacency, patched, directFlights,
+                changed);
+        Map<String, Integer> flightCodes = new HashMap<>();
+        for (int i = 0; i < patched.length; i++) {
+            if (patched[i] != null) {
+                flightCodes.putIfAbsent(patched[i].getCode(), i);
+            }
+        }
+        Graph graph = new Graph(airports, airportIds, airportCountries, patched, flightCodes, patchedAdjacency,
+                patchedDomestic, patchedDirectFlights);
+        return new ScheduleUpdate(graph, affectedAirports,
+                changedLegs.stream().mapToLong(Long::longValue).toArray(), adjacency.getReachability(),
+                patchedAdjacency.getReachability(), added, removed, retimed);
+    }
 
     /**
-     * instantiate a new graph object
+     * Record a changed flight
+     *
+     * @param flight           the flight before or after the change
+     * @param changed          whether the timetable of every airport changed
+     * @param changedLegs      the encoded airport ids of the changed flights
+     * @param affectedAirports the codes of the airports of the changed flights
      */
-    public Graph() {
-        this.graph = new HashMap<>();
+    private void touch(Flight flight, boolean[] changed, Set<Long> changedLegs, Set<String> affectedAirports) {
+        int from = idOf(flight.getDepartureAirport());
+        int to = idOf(flight.getArrivalAirport());
+        changed[from] = true;
+        changedLegs.add((long) from * airports.length + to);
+        affectedAirports.add(flight.getDepartureAirport().getCode());
+        affectedAirports.add(flight.getArrivalAirport().getCode());
     }
 
     /**
-     * add a node to the graph
+     * Describe the flight a change refers to
      *
-     * @param airport the node
-     * @return this graph instance for chaining
+     * @param change the change
+     * @return the code and the airports if given
      */
-    public Graph addNode(Airport airport) {
-        ValidationUtil.assertNotNull(airport, "airport must not be null");
-        graph.putIfAbsent(airport, new HashSet<>());
-        return this;
+    private static String describe(ScheduleDelta.Change change) {
+        return change.getCode() + (change.getFrom() != null ? " from " + change.getFrom() : "")
+                + (change.getTo() != null ? " to " + change.getTo() : "");
     }
 
     /**
-     * Add an edge to a node
-     * Edge represents a direct connection from start to destination
-     * If node is not present in graph than throw error
-     * NOTE: Duplication check is not handled
-     * if this function is called twice with same parameters the same edge will be added twice
+     * Resolve the dense id of an airport
      *
-     * @param start       an airport (node) the starting point
-     * @param destination the destination airport
-     * @param flight      the flight (edge from airport)
-     * @throws IllegalArgumentException if node is not present or any arguments are null
+     * @param airport the airport
+     * @return the airport id or -1 if the airport is not part of this graph
      */
-    public Graph addEdge(Airport start, Airport destination, Flight flight) {
-        ValidationUtil.assertNotNull(start, "start must not be null");
-        ValidationUtil.assertNotNull(destination, "destination must not be null");
-        ValidationUtil.assertNotNull(flight, "flight must not be null");
-        if (!this.graph.containsKey(start)) {
-            throw new IllegalArgumentException("node not present in graph");
+    int idOf(Airport airport) {
+        if (airport == null) {
+            return -1;
         }
-        this.graph.get(start).add(new Edge(destination, flight));
-        return this;
+        Integer id = airportIds.get(airport.getCode());
+        return id == null ? -1 : id;
     }
 
     /**
      * Get direct flights from start to destination
      * if the start point doesn't exist or there are no direct flights return an empty list
+     * the routes are precomputed, the returned list is shared and unmodifiable
      *
      * @param start       the start point (airport)
      * @param destination the destination point (airport)
-     * @return return a list of direct flights
+     * @return return a list of direct flights in departure order
      */
     public List<Route> getDirectFlights(Airport start, Airport destination) {
-        if (!this.graph.containsKey(start)) {
-            return new ArrayList<>();
+        int startId = idOf(start);
+        int destinationId = idOf(destination);
+        if (startId < 0 || destinationId < 0) {
+            return Collections.emptyList();
         }
-        Set<Edge> edges = this.graph.get(start);
-        List<Route> routes = new ArrayList<>();
-        for (Edge edge : edges) {
-            if (destination.equals(edge.destination)) {
-                int cost = TimeUtil.differenceInMins(edge.flight.getDeparture(), edge.flight.getArrival());
-                Route route = Route.builder().cost(cost).flights(Arrays.asList(edge.flight)).build();
-                routes.add(route);
-            }
-        }
-
-        return routes;
+        return directFlights.get(startId, destinationId);
     }
 
     /**
@@ -154,14 +380,81 @@ public class Graph {
      * @param k           how many top results to return
      * @return a list of size at max k or less (if there are less than k possible ways from start to destination)
      */
+    @Override
     public List<Route> topKCheapestFlights(Airport start, Airport destination, int k) {
-        String sCountry = start.getCountry();
-        String dCountry = destination.getCountry();
+        return topKCheapestFlights(start, destination, k, SearchBudget.unlimited());
+    }
 
-        if (sCountry.equalsIgnoreCase(dCountry)) {
-            return shortestPathBFS(start, destination, k, sCountry);
+    /**
+     * {@inheritDoc}
+     * every popped label counts as an expansion and the frontier is the priority queue, the routes found before the
+     * budget ran out are the cheapest routes
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        int startId = idOf(start);
+        int destinationId = idOf(destination);
+        if (startId < 0 || destinationId < 0) {
+            return new ArrayList<>();
+        }
+
+        if (!routable(startId, destinationId)) {
+            return new ArrayList<>();
         }
-        return shortestPathBFS(start, destination, k, null);
+        return shortestPathBFS(startId, destinationId, k, adjacencyOf(startId, destinationId), budget);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the search is lazy, every route is returned as soon as it is settled and the search only advances when the
+     * next route is requested
+     */
+    @Override
+    public Iterator<Route> iterateTopKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        int startId = idOf(start);
+        int destinationId = idOf(destination);
+        if (startId < 0 || destinationId < 0 || !routable(startId, destinationId)) {
+            return Collections.emptyIterator();
+        }
+        return new Search(startId, destinationId, k, adjacencyOf(startId, destinationId), budget);
+    }
+
+    /**
+     * Get the adjacency routes between start and destination must be searched in
+     * a domestic route only uses domestic flights, the domestic adjacency has nothing else
+     *
+     * @param start       the start airport id
+     * @param destination the destination airport id
+     * @return the domestic adjacency if both airports are in the same country otherwise the adjacency of all flights
+     */
+    private Adjacency adjacencyOf(int start, int destination) {
+        return domesticCountry(start, destination) >= 0 ? domestic : adjacency;
+    }
+
+    /**
+     * Check in O(1) if there may be a connecting route from start to destination
+     * using the precomputed {@link Reachability} of the unrestricted or domestic flights
+     *
+     * @param start       the start airport id
+     * @param destination the destination airport id
+     * @return false if there is definitely no route, true otherwise
+     */
+    boolean routable(int start, int destination) {
+        return adjacencyOf(start, destination).getReachability().routable(start, destination);
+    }
+
+    /**
+     * Resolve the country a route between start and destination must stay within
+     *
+     * @param start       the start airport id
+     * @param destination the destination airport id
+     * @return the country id if both airports are in the same country otherwise -1
+     */
+    int domesticCountry(int start, int destination) {
+        if (airportCountries[start] == airportCountries[destination]) {
+            return airportCountries[start];
+        }
+        return -1;
     }
 
     /**
@@ -169,283 +462,434 @@ public class Graph {
      * shortest path from start to destination
      * Time between start and end is considered as cost
      * don't return direct flights in this route
+     * The search is A*, labels are ordered by cost plus the {@link LowerBounds} estimate of the remaining cost.
+     * The estimate is consistent so labels reach destination in ascending order of cost, same as without estimate
      *
-     * @param start       the start airport (in graph terms node)
-     * @param destination the destination airport (in graph terms node)
+     * @param start       the start airport id (in graph terms node)
+     * @param destination the destination airport id (in graph terms node)
      * @param k           how many paths to return (the returned paths may be less than k)
-     * @param country     the country (optional) if both start and destination is in same country we don't want international haults
+     * @param edges       the adjacency to search, the domestic one if both start and destination is in same country
+     * @param budget      the search budget, the paths found so far are returned if it runs out
      * @return list of list of flights (a flight is a connection from node a to node b
      */
-    private List<Route> shortestPathBFS(Airport start, Airport destination, int k, String country) {
+    private List<Route> shortestPathBFS(int start, int destination, int k, Adjacency edges, SearchBudget budget) {
         List<Route> journeys = new ArrayList<>();
-
-        // we need the paths sorted in ascending order
-        // whenever heap size is more than k we poll from heap so we need to keep them in descending order
-        PriorityQueue<Path> topK = new PriorityQueue<>(new Comparator<Path>() {
-            @Override
-            public int compare(Path o1, Path o2) {
-                int value = o1.compareTo(o2);
-                if (value < 0) {
-                    return 1;
-                } else if (value == 0) {
-                    return 0;
-                }
-                return -1;
-            }
-        });
-
-        PriorityQueue<GraphNode> queue = new PriorityQueue<>();
-        queue.add(new GraphNode(0, start, new Path().addAirport(start)));
-
-        while (!queue.isEmpty() && topK.size() < k) {
-            GraphNode current = queue.poll();
-            // if the current path has more hops than maximum allowed
-            // we don't go further in that path
-            if (current.path.flights.size() > MAXIMUM_HOPS) {
-                continue;
-            }
-            // check all edges of current
-            if (current.node.equals(destination)) {
-                // we reached destination
-                topK.add(current.path);
-                if (topK.size() > k) {
-                    // ideally this will never be triggered
-                    Path recent = topK.poll();
-                    LOGGER.debug("Start {}, destination {}, path {} is not in top {}", start, destination, recent, k);
-                }
-            } else {
-                List<GraphNode> neighbours = getNeighbours(current, start, destination, country);
-                queue.addAll(neighbours);
-            }
+        Search search = new Search(start, destination, k, edges, budget);
+        while (search.hasNext()) {
+            journeys.add(search.next());
         }
-
-        while (!topK.isEmpty()) {
-            Path path = topK.poll();
-            Route route = Route.builder().cost(path.cost).flights(path.flights).build();
-            journeys.add(route);
-        }
-        Collections.reverse(journeys);
         return journeys;
     }
 
     /**
-     * Returns all the current node neighbours
+     * Push all the current node neighbours to the queue
      * if the next node from current is not destination than there would be additional layover time added as well
      * Direct flights are not returned here
+     * Neighbours share the current label as their parent, so no path prefix is copied
+     * <p>
+     * The timetable of the airport is sorted by departure, so edges are visited in layover order starting with the
+     * first departure at or after arrival + {@link com.mmt.flights.planner.ApiConstants#MINIMUM_LAYOVER_TIME_MINS}
+     * (binary searched) and wrapping around midnight. At most budget neighbours at destination are pushed because
+     * only budget more routes are needed, and once only destination can be reached with the hops left the walk stops
+     * as soon as no later departure can beat the neighbours kept so far
      *
      * @param current the current node
-     * @return the list of neighbours (may be empty) but never null
+     * @param edges   the adjacency to search
+     * @param budget  the number of routes still needed
+     * @param queue   the search frontier
      */
-    private List<GraphNode> getNeighbours(GraphNode current, Airport start, Airport destination, String country) {
-        List<GraphNode> neighbours = new ArrayList<>();
-
-        Set<Edge> edges = graph.get(current.node);
-        if (CollectionUtils.isNotEmpty(edges)) {
-            for (Edge edge : edges) {
-                // if we have to do same country check do here
-                if (StringUtils.isNotBlank(country) && !edge.destination.getCountry().equalsIgnoreCase(country)) {
-                    // we don't want an international detour
-                    continue;
-                }
-                if (current.node.equals(start) && edge.destination.equals(destination)) {
-                    continue;
-                }
+    private void expand(GraphNode current, int start, int destination, Adjacency edges, int budget,
+                        PriorityQueue<GraphNode> queue) {
+        final int[] offsets = edges.getOffsets();
+        final int[] edgeFlights = edges.getEdgeFlights();
+        final int[] edgeTargets = edges.getEdgeTargets();
+        final int[] edgeDepartures = edges.getEdgeDepartures();
+        final int[] edgeDurations = edges.getEdgeDurations();
+        final LowerBounds lowerBounds = edges.getLowerBounds();
+        final Reachability reachability = edges.getReachability();
+        final int from = offsets[current.node];
+        final int to = offsets[current.node + 1];
+        final int count = to - from;
+        final boolean layover = current.hops > 0;
+        // only destination can be reached with the hops left
+        final boolean last = current.hops + 1 >= MAXIMUM_HOPS;
+        final int ready = layover ? (current.arrival + MINIMUM_LAYOVER_TIME_MINS) % TimeUtil.MINS_IN_DAY : 0;
+        final int first = layover ? edges.firstDeparture(from, to, ready) : from;
+        final int minDuration = edges.getMinDurations()[current.node];
+
+        // the cheapest neighbours at destination, most expensive on top, created when first needed
+        PriorityQueue<GraphNode> arrivals = null;
+
+        for (int i = 0; i < count; i++) {
+            final int e = first + i < to ? first + i : first + i - count;
+
+            // calculate new cost for this edge, the flight time
+            // now if the flight departure time is more than or equal to
+            // lading time at current + MINIMUM_LAYOVER_TIME_MINS than the person can catch flight at same day otherwise
+            // the person will have to layover at airport overnight
+            int wait = layover ? MINIMUM_LAYOVER_TIME_MINS + Math.floorMod(edgeDepartures[e] - ready, TimeUtil.MINS_IN_DAY) : 0;
+            if (last && arrivals != null && arrivals.size() >= budget && current.cost + wait + minDuration >= arrivals.peek().cost) {
+                // layovers only grow from here, no later departure can be in the top budget
+                break;
+            }
 
-                // if this airport already exists in path we won't be going there again
-                if (current.path.airports.contains(edge.destination)) {
-                    continue;
-                }
+            int target = edgeTargets[e];
+            if (current.node == start && target == destination) {
+                continue;
+            }
+            // we don't go further if destination can't be reached with the hops left
+            if (!reachability.reaches(target, destination, MAXIMUM_HOPS - current.hops - 1)) {
+                continue;
+            }
 
-                // calculate new cost for this edge
-                int newCost = 0;
-
-                // now if the flight departure time is more than or equal to
-                // lading time at current + MINIMUM_LAYOVER_TIME_MINS than the person can catch flight at same day otherwise
-                // the person will have to layover at airport overnight
-                if (current.path.flights.size() > 0) {
-                    // get the last flight user took
-                    String latestArrival = current.path.flights.get(current.path.flights.size() - 1).getArrival();
-                    newCost = newCost + calculateLayoverTime(latestArrival, edge);
-                    // add flight time
-                    newCost = newCost + TimeUtil.differenceInMins(edge.flight.getDeparture(), edge.flight.getArrival());
-                } else {
-                    newCost = newCost + TimeUtil.differenceInMins(edge.flight.getDeparture(), edge.flight.getArrival());
-                }
-                Path cloned = current.path.clone();
-                cloned.addFlight(edge.flight, newCost);
-                cloned.addAirport(edge.destination);
+            // if this airport already exists in path we won't be going there again
+            if (current.visits(target)) {
+                continue;
+            }
+
+            // destination is reachable from target so the estimate is finite
+            int estimate = target == destination ? 0 : lowerBounds.get(target, destination);
 
-                neighbours.add(new GraphNode(newCost + current.cost, edge.destination, cloned));
+            int flight = edgeFlights[e];
+            int cost = current.cost + wait + edgeDurations[e];
+            GraphNode next = new GraphNode(cost, cost + estimate, target, flight, flights[flight].getArrivalMinute(), current);
+            if (target != destination) {
+                queue.add(next);
+                continue;
+            }
+            if (arrivals == null) {
+                arrivals = new PriorityQueue<>(Collections.reverseOrder());
+            }
+            if (arrivals.size() < budget) {
+                arrivals.add(next);
+            } else if (next.compareTo(arrivals.peek()) < 0) {
+                arrivals.poll();
+                arrivals.add(next);
             }
         }
-
-        return neighbours;
+        if (arrivals != null) {
+            queue.addAll(arrivals);
+        }
     }
 
     /**
-     * Calculate the layover time in mins
-     * it's possible that user landed at 1300 hours and next flight is at 1600 hours so 3 hours is added to total cost
+     * Materialize the route ending at the given label by walking the parent pointers
      *
-     * @param latestArrival the user latest arrival time
-     * @param edge          the edge
-     * @return the total layover time, this will be added to cost
+     * @param label the label at destination
+     * @return the route with flights in travel order
      */
-    private int calculateLayoverTime(String latestArrival, Edge edge) {
-        LocalTime arrivalTime = LocalTime.parse(latestArrival, DateTimeFormatter.ofPattern("HHmm"));
-        LocalTime nextFlightTime = LocalTime.parse(latestArrival, DateTimeFormatter.ofPattern("HHmm"))
-                .plusMinutes(MINIMUM_LAYOVER_TIME_MINS);
+    private Route toRoute(GraphNode label) {
+        Flight[] path = new Flight[label.hops];
+        for (GraphNode node = label; node.parent != null; node = node.parent) {
+            path[node.hops - 1] = flights[node.flight];
+        }
+        return Route.builder().cost(label.cost).flights(Arrays.asList(path)).build();
+    }
 
-        LocalTime flightTime = LocalTime.parse(edge.flight.getDeparture(), DateTimeFormatter.ofPattern("HHmm"));
+    /**
+     * A suspended top k search, see {@link #shortestPathBFS(int, int, int, Adjacency, SearchBudget)}
+     * labels are popped in ascending order of estimated cost (and hops) so the first k labels popped at destination
+     * are the top k paths, the search stops at every label popped at destination and only materializes its route
+     * This class is not thread safe
+     */
+    private final class Search implements Iterator<Route> {
 
-        if (nextFlightTime.isAfter(LocalTime.MIDNIGHT) || nextFlightTime.equals(LocalTime.MIDNIGHT)) {
-            // wrap around add 1 day
-            return TimeUtil.differenceInMins(nextFlightTime, flightTime) + MINIMUM_LAYOVER_TIME_MINS;
-        }
+        /**
+         * the start airport id
+         */
+        private final int start;
+
+        /**
+         * the destination airport id
+         */
+        private final int destination;
+
+        /**
+         * how many routes to find
+         */
+        private final int k;
 
-        if (flightTime.isAfter(nextFlightTime) || flightTime.equals(nextFlightTime)) {
-            // no need for overnight layover
-            return TimeUtil.differenceInMins(arrivalTime, flightTime);
+        /**
+         * the adjacency to search
+         */
+        private final Adjacency edges;
+
+        /**
+         * the search budget
+         */
+        private final SearchBudget budget;
+
+        /**
+         * the search frontier
+         */
+        private final PriorityQueue<GraphNode> queue = new PriorityQueue<>();
+
+        /**
+         * number of labels popped per (arrival flight, hops), only the pairs actually popped are counted
+         */
+        private final LabelCounts settled;
+
+        /**
+         * number of labels popped so far
+         */
+        private int expansions;
+
+        /**
+         * number of routes returned so far
+         */
+        private int found;
+
+        /**
+         * the label at destination of the next route or null if not searched yet
+         */
+        private GraphNode pending;
+
+        /**
+         * Create a search
+         *
+         * @param start       the start airport id
+         * @param destination the destination airport id
+         * @param k           how many routes to find
+         * @param edges       the adjacency to search
+         * @param budget      the search budget
+         */
+        Search(int start, int destination, int k, Adjacency edges, SearchBudget budget) {
+            this.start = start;
+            this.destination = destination;
+            this.k = k;
+            this.edges = edges;
+            this.budget = budget;
+            this.settled = BOUNDED_LABELS ? new LabelCounts() : null;
+            queue.add(new GraphNode(0, 0, start, -1, -1, null));
         }
 
-        if (arrivalTime.equals(flightTime)) {
-            // full 1440 layover
-            return 1440;
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            if (pending == null && found < k) {
+                pending = advance();
+            }
+            return pending != null;
         }
 
-        if (arrivalTime.isAfter(flightTime)) {
-            return TimeUtil.differenceInMins(arrivalTime, flightTime);
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Route next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("no more routes");
+            }
+            Route route = toRoute(pending);
+            pending = null;
+            found++;
+            return route;
         }
 
-        return TimeUtil.differenceInMins(flightTime, arrivalTime);
+        /**
+         * Run the search until the next label is popped at destination
+         * if the budget runs out the frontier is dropped and the search ends
+         *
+         * @return the label or null if there are no more routes
+         */
+        private GraphNode advance() {
+            while (!queue.isEmpty()) {
+                if (budget.exhausted(++expansions, queue.size())) {
+                    queue.clear();
+                    return null;
+                }
+                GraphNode current = queue.poll();
+                // labels arriving with the same flight after the same number of hops have exactly the same extensions,
+                // so after k of them are settled any later one can only produce routes that are not in top k
+                if (settled != null && current.hops > 0
+                        && settled.increment(current.flight * MAXIMUM_HOPS + current.hops - 1) > k) {
+                    continue;
+                }
+                // check all edges of current
+                if (current.node == destination) {
+                    // we reached destination
+                    return current;
+                } else if (current.hops < MAXIMUM_HOPS) {
+                    // if the current path already has maximum allowed hops we don't go further in that path
+                    expand(current, start, destination, edges, k - found, queue);
+                }
+            }
+            return null;
+        }
     }
 
     /**
-     * represents a graph traversal node
+     * Counts per int key in an open addressing hash table
+     * sized by the keys actually counted so a search pays for the labels it touches, not for the size of the schedule
+     * This class is not thread safe
      */
-    @Getter
-    @Setter
-    private class GraphNode implements Comparable<GraphNode> {
+    private static final class LabelCounts {
 
         /**
-         * The cumulative cost to reach this airport
+         * the initial table size, a power of two
          */
-        private int cost;
+        private static final int INITIAL_CAPACITY = 64;
 
         /**
-         * The airport node
+         * the keys plus one, 0 marks a free slot
          */
-        private Airport node;
+        private int[] keys = new int[INITIAL_CAPACITY];
 
         /**
-         * The path taken to reach this airport node
+         * the count of every key
          */
-        private Path path;
+        private int[] counts = new int[INITIAL_CAPACITY];
 
         /**
-         * Create instance of graph node with specified cost, node and path
+         * number of keys counted
+         */
+        private int size;
+
+        /**
+         * Increment the count of a key
          *
-         * @param cost the cost
-         * @param node the node
-         * @param path the path
+         * @param key the key, not negative
+         * @return the new count
          */
-        public GraphNode(int cost, Airport node, Path path) {
-            this.cost = cost;
-            this.node = node;
-            this.path = path;
+        int increment(int key) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int slot = slot(keys, key);
+            if (keys[slot] == 0) {
+                keys[slot] = key + 1;
+                size++;
+            }
+            return ++counts[slot];
         }
 
         /**
-         * {@inheritDoc}
+         * Double the table, keeping it at most half full
          */
-        @Override
-        public int compareTo(GraphNode o) {
-            if (this.cost == o.cost) {
-                return this.path.compareTo(o.path);
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
             }
-            return this.cost - o.cost;
         }
 
-        @Override
-        public String toString() {
-            return "GraphNode{" +
-                    "cost=" + cost +
-                    ", node=" + node +
-                    ", path=" + path +
-                    '}';
+        /**
+         * Find the slot of a key by linear probing
+         *
+         * @param keys the table
+         * @param key  the key
+         * @return the slot holding the key or the free slot it goes to
+         */
+        private static int slot(int[] keys, int key) {
+            final int mask = keys.length - 1;
+            final int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != 0 && keys[slot] != key + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
         }
     }
 
-    // class to represent a path from start to destination
+    /**
+     * represents a graph traversal node (a search label)
+     * labels form a persistent linked list through their parent, every label shares its prefix with its parent
+     */
     @Getter
-    @Setter
-    private class Path implements Comparable<Path> {
+    private static final class GraphNode implements Comparable<GraphNode> {
+
+        /**
+         * The cumulative cost to reach this airport
+         */
+        private final int cost;
 
         /**
-         * the cost associated with path
+         * The cumulative cost plus the lower bound of the remaining cost to destination
          */
-        private int cost;
+        private final int estimate;
 
         /**
-         * List of flights from start to destination
-         * (in order)
+         * The airport node id
          */
-        private List<Flight> flights = new ArrayList<>();
+        private final int node;
 
         /**
-         * all airports a user will pass through in journey
-         * Both start and destination will be part of this list
-         * start should be first and destination should be last in that order
+         * The flight id taken to reach this airport node or -1 for the start node
          */
-        private List<Airport> airports = new ArrayList<>();
+        private final int flight;
 
         /**
-         * Add a flight to the path with specified cost
-         *
-         * @param flight the flight object to add
-         * @param cost   the cost to increment
-         * @return this path for chaining
-         */
-        public Path addFlight(Flight flight, int cost) {
-            this.flights.add(flight);
-            this.cost = this.cost + cost;
-            return this;
-        }
+         * The arrival minute of day at this airport node or -1 for the start node
+         */
+        private final int arrival;
 
         /**
-         * Add an airport
+         * number of flights taken to reach this airport node
+         */
+        private final int hops;
+
+        /**
+         * The label this label was expanded from or null for the start node
+         */
+        private final GraphNode parent;
+
+        /**
+         * Create instance of graph node with specified cost, node and parent
          *
-         * @param airport the airport object
-         * @return path object for chaining
+         * @param cost     the cumulative cost
+         * @param estimate the cumulative cost plus lower bound of the remaining cost
+         * @param node     the node
+         * @param flight   the flight taken to reach node
+         * @param arrival  the arrival minute of day at node
+         * @param parent   the parent label
          */
-        public Path addAirport(Airport airport) {
-            this.airports.add(airport);
-            return this;
+        GraphNode(int cost, int estimate, int node, int flight, int arrival, GraphNode parent) {
+            this.cost = cost;
+            this.estimate = estimate;
+            this.node = node;
+            this.flight = flight;
+            this.arrival = arrival;
+            this.hops = parent == null ? 0 : parent.hops + 1;
+            this.parent = parent;
         }
 
         /**
-         * {@inheritDoc}
+         * Check if the path to this label already passes through the airport
+         * the walk is bounded by {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS}
+         *
+         * @param airport the airport id
+         * @return true if visited otherwise false
          */
-        @Override
-        protected Path clone() {
-            Path path = new Path();
-            path.setCost(this.cost);
-            path.setAirports(new ArrayList<>(this.airports));
-            path.setFlights(new ArrayList<>(this.flights));
-            return path;
+        boolean visits(int airport) {
+            for (GraphNode node = this; node != null; node = node.parent) {
+                if (node.node == airport) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         /**
-         * All the paths are compared using cost and if cost is same they are compared using no of stops
+         * All the labels are compared using estimated cost and if it is same they are compared using no of stops
          *
-         * @param p the other path object (compare with this)
-         * @return -1 if this path is less than p, 0 if both are equal or +1 if this path is greater than p
+         * @param o the other label
+         * @return negative if this label is less than o, 0 if both are equal or positive if this label is greater
          */
         @Override
-        public int compareTo(Path p) {
-            if (this.cost == p.cost) {
-                return this.flights.size() - p.flights.size();
+        public int compareTo(GraphNode o) {
+            if (this.estimate == o.estimate) {
+                return this.hops - o.hops;
             }
-            return this.cost - p.cost;
+            return Integer.compare(this.estimate, o.estimate);
         }
 
         /**
@@ -453,9 +897,11 @@ public class Graph {
          */
         @Override
         public String toString() {
-            return "Path{" +
+            return "GraphNode{" +
                     "cost=" + cost +
-                    ", flights=" + flights +
+                    ", estimate=" + estimate +
+                    ", node=" + node +
+                    ", hops=" + hops +
                     '}';
         }
     }
@@ -0,0 +1,201 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.ValidationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Mutable builder for {@link Graph}
+ * Nodes and edges are collected here and than frozen into a compact int indexed graph by {@link #build()}
+ * Airports get dense int ids in the order they are added, flights get dense int ids in the order they are added
+ * This class is not thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class GraphBuilder {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphBuilder.class);
+
+    /**
+     * airport code to dense airport id
+     */
+    private final Map<String, Integer> airportIds = new HashMap<>();
+
+    /**
+     * all the airports (nodes), index is the airport id
+     */
+    private final List<Airport> airports = new ArrayList<>();
+
+    /**
+     * all the flights (edges), index is the flight id
+     */
+    private final List<Flight> flights = new ArrayList<>();
+
+    /**
+     * the start airport id of each flight, index is the flight id
+     */
+    private final List<Integer> flightStarts = new ArrayList<>();
+
+    /**
+     * the destination airport id of each flight, index is the flight id
+     */
+    private final List<Integer> flightDestinations = new ArrayList<>();
+
+    /**
+     * add a node to the graph
+     * adding the same airport twice is a no op
+     *
+     * @param airport the node
+     * @return this builder instance for chaining
+     */
+    public GraphBuilder addNode(Airport airport) {
+        ValidationUtil.assertNotNull(airport, "airport must not be null");
+        if (!airportIds.containsKey(airport.getCode())) {
+            airportIds.put(airport.getCode(), airports.size());
+            airports.add(airport);
+        }
+        return this;
+    }
+
+    /**
+     * Add an edge to a node
+     * Edge represents a direct connection from start to destination
+     * If node is not present in graph than throw error
+     * NOTE: Duplication check is not handled
+     * if this function is called twice with same parameters the same edge will be added twice
+     *
+     * @param start       an airport (node) the starting point
+     * @param destination the destination airport
+     * @param flight      the flight (edge from airport)
+     * @return this builder instance for chaining
+     * @throws IllegalArgumentException if node is not present or any arguments are null
+     */
+    public GraphBuilder addEdge(Airport start, Airport destination, Flight flight) {
+        ValidationUtil.assertNotNull(start, "start must not be null");
+        ValidationUtil.assertNotNull(destination, "destination must not be null");
+        ValidationUtil.assertNotNull(flight, "flight must not be null");
+        Integer startId = airportIds.get(start.getCode());
+        Integer destinationId = airportIds.get(destination.getCode());
+        if (startId == null || destinationId == null) {
+            throw new IllegalArgumentException("node not present in graph");
+        }
+        flights.add(flight);
+        flightStarts.add(startId);
+        flightDestinations.add(destinationId);
+        return this;
+    }
+
+    /**
+     * Freeze the nodes and edges added so far into a compressed sparse row graph
+     * outgoing flights of airport i are flightIds[offsets[i]] until flightIds[offsets[i + 1] - 1]
+     * sorted by departure minute (flights departing at the same minute in the order they were added)
+     * A second adjacency with only the flights between airports of the same country is built for domestic routes
+     * and the direct flights of every origin destination pair are indexed
+     *
+     * @return the immutable graph
+     */
+    public Graph build() {
+        final Airport[] airportArray = airports.toArray(new Airport[0]);
+        final int airportCount = airportArray.length;
+        final int flightCount = flights.size();
+
+        // count outgoing flights per airport and turn counts into offsets
+        int[] offsets = new int[airportCount + 1];
+        for (int i = 0; i < flightCount; i++) {
+            offsets[flightStarts.get(i) + 1]++;
+        }
+        for (int i = 0; i < airportCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // fill the slots in departure order so that every airport timetable is sorted by departure
+        Integer[] order = new Integer[flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> flights.get(i).getDepartureMinute()));
+
+        int[] cursor = new int[airportCount];
+        int[] flightIds = new int[flightCount];
+        int[] flightTargets = new int[flightCount];
+        int[] flightDepartures = new int[flightCount];
+        int[] flightDurations = new int[flightCount];
+        for (int i : order) {
+            int start = flightStarts.get(i);
+            int slot = offsets[start] + cursor[start]++;
+            Flight flight = flights.get(i);
+            flightIds[slot] = i;
+            flightTargets[slot] = flightDestinations.get(i);
+            flightDepartures[slot] = flight.getDepartureMinute();
+            flightDurations[slot] = flight.getDuration();
+        }
+
+        return freeze(airportArray, flights.toArray(new Flight[0]), offsets, flightIds, flightTargets, flightDepartures,
+                flightDurations);
+    }
+
+    /**
+     * Freeze airports, flights and their compressed sparse row edges into a graph
+     * the countries are interned, the adjacency with its search helpers, the domestic adjacency, the direct flight
+     * index and the flight codes are derived here
+     *
+     * @param airports    the airports indexed by airport id
+     * @param flights     the flights indexed by flight id
+     * @param offsets     the compressed sparse row offsets
+     * @param edgeFlights the flight id of every edge, every airport timetable sorted by departure minute
+     * @param edgeTargets the destination airport id of every edge
+     * @param departures  the departure minute of day of every edge
+     * @param durations   the flight duration in mins of every edge
+     * @return the immutable graph
+     */
+    static Graph freeze(Airport[] airports, Flight[] flights, int[] offsets, int[] edgeFlights, int[] edgeTargets,
+                        int[] departures, int[] durations) {
+        // intern countries so that domestic checks are int comparisons
+        Map<String, Integer> countryIds = new HashMap<>();
+        Map<String, Integer> airportIds = new HashMap<>();
+        int[] airportCountries = new int[airports.length];
+        for (int i = 0; i < airports.length; i++) {
+            String country = airports[i].getCountry().toUpperCase(Locale.ROOT);
+            Integer countryId = countryIds.get(country);
+            if (countryId == null) {
+                countryId = countryIds.size();
+                countryIds.put(country, countryId);
+            }
+            airportCountries[i] = countryId;
+            airportIds.put(airports[i].getCode(), i);
+        }
+
+        long begin = System.currentTimeMillis();
+        Adjacency adjacency = new Adjacency(offsets, edgeFlights, edgeTargets, departures, durations);
+        Adjacency domestic = adjacency.domestic(airportCountries);
+        LOGGER.info("Built lower bounds for {} airports in {} ms, table size {} bytes", adjacency.getLowerBounds().size(),
+                System.currentTimeMillis() - begin, 4L * adjacency.getLowerBounds().size() * adjacency.getLowerBounds().size());
+        LOGGER.info("Built domestic adjacency of {} of {} flights, lower bounds table size {} bytes",
+                domestic.getEdgeCount(), adjacency.getEdgeCount(),
+                4L * domestic.getLowerBounds().size() * domestic.getLowerBounds().size());
+        LOGGER.info("Built reachability bitsets of {} bytes, domestic {} bytes", adjacency.getReachability().bytes(),
+                domestic.getReachability().bytes());
+
+        Map<String, Integer> flightCodes = new HashMap<>();
+        for (int i = 0; i < flights.length; i++) {
+            flightCodes.putIfAbsent(flights[i].getCode(), i);
+        }
+        DirectFlightIndex directFlights = new DirectFlightIndex(adjacency, flights);
+        LOGGER.info("Built direct flight index of {} origin destination pairs", directFlights.size());
+
+        return new Graph(airports, airportIds, airportCountries, flights, flightCodes, adjacency, domestic,
+                directFlights);
+    }
+}
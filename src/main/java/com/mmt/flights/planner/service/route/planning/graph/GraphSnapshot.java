@@ -0,0 +1,341 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.ValidationUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a frozen graph so that it can be loaded without parsing and validating the schedule again
+ * The file has a fixed header (magic, format version, source stamp, payload length and crc32 of the payload) and a
+ * payload of the interned country table, the airports, the flights as columns and the compressed sparse row edges.
+ * Reading maps the file and bulk copies the columns into the graph arrays, the search helpers derived from the edges
+ * are computed as on {@link GraphBuilder#build()}. The source stamp is opaque here, a loader sets it to identify the
+ * schedule files the snapshot was written from so a snapshot of older files is not read
+ * Flights removed by a delta are not written, the ids of the other flights are compacted
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public final class GraphSnapshot {
+
+    /**
+     * magic number of a snapshot file, "FPGS"
+     */
+    private static final int MAGIC = 0x46504753;
+
+    /**
+     * the version of the file format, increment it on every format change
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * bytes of the header: magic, format version, source stamp, payload length and checksum
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+
+    /**
+     * bytes of a HHMM time
+     */
+    private static final int TIME_BYTES = 4;
+
+    /**
+     * Utility class
+     */
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Write the snapshot of a graph
+     * the snapshot is written to a temporary file next to the target and moved over it, so a reader never sees a
+     * partially written file
+     *
+     * @param graph  the graph
+     * @param source the stamp of the schedule files the graph was loaded from
+     * @param file   the snapshot file
+     * @return the size of the snapshot in bytes
+     * @throws IOException if the file can't be written
+     */
+    public static long write(Graph graph, long source, Path file) throws IOException {
+        ValidationUtil.assertNotNull(graph, "graph must not be null");
+        ValidationUtil.assertNotNull(file, "file must not be null");
+        final Airport[] airports = graph.getAirports();
+        final Flight[] flights = graph.getFlights();
+        final Adjacency adjacency = graph.getAdjacency();
+
+        // compact the flight ids, removed flights are not part of any timetable
+        int[] compactIds = new int[flights.length];
+        List<Flight> live = new ArrayList<>(flights.length);
+        for (int i = 0; i < flights.length; i++) {
+            compactIds[i] = flights[i] != null ? live.size() : -1;
+            if (flights[i] != null) {
+                live.add(flights[i]);
+            }
+        }
+
+        // intern the countries as written by the airports, the graph interns them case insensitive
+        Map<String, Integer> countryIds = new HashMap<>();
+        List<byte[]> countries = new ArrayList<>();
+        int[] airportCountries = new int[airports.length];
+        byte[][] airportCodes = new byte[airports.length][];
+        Map<String, Integer> airportIds = new HashMap<>();
+        for (int i = 0; i < airports.length; i++) {
+            String country = airports[i].getCountry();
+            Integer countryId = countryIds.get(country);
+            if (countryId == null) {
+                countryId = countries.size();
+                countryIds.put(country, countryId);
+                countries.add(country.getBytes(StandardCharsets.UTF_8));
+            }
+            airportCountries[i] = countryId;
+            airportCodes[i] = airports[i].getCode().getBytes(StandardCharsets.UTF_8);
+            airportIds.put(airports[i].getCode(), i);
+        }
+
+        final int flightCount = live.size();
+        byte[][] flightCodes = new byte[flightCount][];
+        int[] flightStarts = new int[flightCount];
+        int[] flightDestinations = new int[flightCount];
+        byte[] departures = new byte[TIME_BYTES * flightCount];
+        byte[] arrivals = new byte[TIME_BYTES * flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            Flight flight = live.get(i);
+            flightCodes[i] = flight.getCode().getBytes(StandardCharsets.UTF_8);
+            flightStarts[i] = airportIds.get(flight.getDepartureAirport().getCode());
+            flightDestinations[i] = airportIds.get(flight.getArrivalAirport().getCode());
+            System.arraycopy(flight.getDeparture().getBytes(StandardCharsets.US_ASCII), 0, departures,
+                    TIME_BYTES * i, TIME_BYTES);
+            System.arraycopy(flight.getArrival().getBytes(StandardCharsets.US_ASCII), 0, arrivals,
+                    TIME_BYTES * i, TIME_BYTES);
+        }
+
+        final int edgeCount = adjacency.getEdgeCount();
+        int[] edgeFlights = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            edgeFlights[e] = compactIds[adjacency.getEdgeFlights()[e]];
+        }
+
+        long payloadBytes = 4L + stringBytes(countries.toArray(new byte[0][]))
+                + 4L + stringBytes(airportCodes) + 4L * airports.length
+                + 4L + stringBytes(flightCodes) + 8L * flightCount + 2L * TIME_BYTES * flightCount
+                + 4L + 4L * (airports.length + 1) + 16L * edgeCount;
+        if (payloadBytes > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new IOException("graph too large for a snapshot, payload of " + payloadBytes + " bytes");
+        }
+        ByteBuffer payload = ByteBuffer.allocate((int) payloadBytes);
+        putStrings(payload, countries.toArray(new byte[0][]));
+        putStrings(payload, airportCodes);
+        putInts(payload, airportCountries);
+        putStrings(payload, flightCodes);
+        putInts(payload, flightStarts);
+        putInts(payload, flightDestinations);
+        payload.put(departures).put(arrivals);
+        payload.putInt(edgeCount);
+        putInts(payload, adjacency.getOffsets());
+        putInts(payload, edgeFlights);
+        putInts(payload, adjacency.getEdgeTargets());
+        putInts(payload, adjacency.getEdgeDepartures());
+        putInts(payload, adjacency.getEdgeDurations());
+        payload.flip();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).putLong(source)
+                .putLong(payloadBytes).putLong(checksum.getValue());
+        header.flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || payload.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, payload});
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return HEADER_BYTES + payloadBytes;
+    }
+
+    /**
+     * Read the snapshot of a graph
+     * the file is memory mapped, its header and checksum are verified before the payload is read
+     *
+     * @param file   the snapshot file
+     * @param source the stamp of the current schedule files
+     * @return the graph
+     * @throws IOException if the file can't be read, is not a snapshot of this format, was written from other schedule
+     *                     files or is corrupt
+     */
+    public static Graph read(Path file, long source) throws IOException {
+        ValidationUtil.assertNotNull(file, "file must not be null");
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("truncated snapshot of " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("not a graph snapshot");
+        }
+        int format = buffer.getInt();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("snapshot format version " + format + ", expected " + FORMAT_VERSION);
+        }
+        if (buffer.getLong() != source) {
+            throw new IOException("snapshot of other schedule files");
+        }
+        long payloadBytes = buffer.getLong();
+        if (payloadBytes != buffer.capacity() - HEADER_BYTES) {
+            throw new IOException("snapshot payload of " + (buffer.capacity() - HEADER_BYTES) + " bytes, expected "
+                    + payloadBytes);
+        }
+        long expected = buffer.getLong();
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate());
+        if (checksum.getValue() != expected) {
+            throw new IOException("snapshot checksum mismatch");
+        }
+
+        try {
+            return read(buffer);
+        } catch (RuntimeException ex) {
+            throw new IOException("invalid snapshot payload", ex);
+        }
+    }
+
+    /**
+     * Read the payload of a verified snapshot
+     *
+     * @param buffer the snapshot positioned at the payload
+     * @return the graph
+     */
+    private static Graph read(ByteBuffer buffer) {
+        final String[] countries = getStrings(buffer);
+        final String[] airportCodes = getStrings(buffer);
+        final int[] airportCountries = getInts(buffer, airportCodes.length);
+        final Airport[] airports = new Airport[airportCodes.length];
+        for (int i = 0; i < airports.length; i++) {
+            airports[i] = Airport.fromCode(airportCodes[i], countries[airportCountries[i]]);
+        }
+
+        final String[] flightCodes = getStrings(buffer);
+        final int flightCount = flightCodes.length;
+        final int[] flightStarts = getInts(buffer, flightCount);
+        final int[] flightDestinations = getInts(buffer, flightCount);
+        final byte[] departures = new byte[TIME_BYTES * flightCount];
+        final byte[] arrivals = new byte[TIME_BYTES * flightCount];
+        buffer.get(departures).get(arrivals);
+        final Flight[] flights = new Flight[flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            flights[i] = Flight.fromCode(flightCodes[i],
+                    new String(departures, TIME_BYTES * i, TIME_BYTES, StandardCharsets.US_ASCII),
+                    new String(arrivals, TIME_BYTES * i, TIME_BYTES, StandardCharsets.US_ASCII),
+                    airports[flightStarts[i]], airports[flightDestinations[i]]);
+        }
+
+        final int edgeCount = buffer.getInt();
+        final int[] offsets = getInts(buffer, airports.length + 1);
+        final int[] edgeFlights = getInts(buffer, edgeCount);
+        final int[] edgeTargets = getInts(buffer, edgeCount);
+        final int[] edgeDepartures = getInts(buffer, edgeCount);
+        final int[] edgeDurations = getInts(buffer, edgeCount);
+        if (buffer.hasRemaining() || offsets[airports.length] != edgeCount) {
+            throw new IllegalStateException("snapshot edges don't match the offsets");
+        }
+        return GraphBuilder.freeze(airports, flights, offsets, edgeFlights, edgeTargets, edgeDepartures,
+                edgeDurations);
+    }
+
+    /**
+     * Get the bytes a string table takes, without its count
+     *
+     * @param strings the utf-8 encoded strings
+     * @return the bytes
+     */
+    private static long stringBytes(byte[][] strings) {
+        long bytes = 0;
+        for (byte[] string : strings) {
+            bytes += 2 + string.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Put a string table, the count and every string as length and utf-8 bytes
+     *
+     * @param buffer  the buffer
+     * @param strings the utf-8 encoded strings
+     */
+    private static void putStrings(ByteBuffer buffer, byte[][] strings) {
+        buffer.putInt(strings.length);
+        for (byte[] string : strings) {
+            if (string.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("string too long for a snapshot");
+            }
+            buffer.putShort((short) string.length).put(string);
+        }
+    }
+
+    /**
+     * Get a string table
+     *
+     * @param buffer the buffer
+     * @return the strings
+     */
+    private static String[] getStrings(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        byte[] bytes = new byte[Short.MAX_VALUE];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getShort();
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * Put an int column
+     *
+     * @param buffer the buffer
+     * @param values the values
+     */
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    /**
+     * Get an int column with a bulk copy
+     *
+     * @param buffer the buffer
+     * @param count  the number of values
+     * @return the values
+     */
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+/**
+ * A partial route used by the scanning search engines
+ * A label arrived at an airport with a connection, connections are indexes into the engine's own flight arrays
+ * labels form a persistent linked list through their parent, every label shares its prefix with its parent
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+final class Label {
+
+    /**
+     * The most flights a route may have for labels to stay loop free without tracking the airports of their path
+     * routes never board back to start and never go through destination, so with up to 3 flights
+     * (start - a - b - destination) no airport can be visited twice
+     */
+    static final int MAXIMUM_LOOP_FREE_HOPS = 3;
+
+    /**
+     * The cumulative cost
+     */
+    final int cost;
+
+    /**
+     * The connection this label arrived with
+     */
+    final int connection;
+
+    /**
+     * number of flights taken
+     */
+    final int hops;
+
+    /**
+     * The label this label was extended from or null for the first flight
+     */
+    final Label parent;
+
+    /**
+     * lower bound of (cost of boarding a connection - connection departure minute)
+     * i.e. cost + minimum layover - earliest departure minute, set when the label is bucketed at its airport
+     */
+    int base;
+
+    /**
+     * Create a label
+     *
+     * @param cost       the cumulative cost
+     * @param connection the connection
+     * @param parent     the parent label
+     */
+    Label(int cost, int connection, Label parent) {
+        this.cost = cost;
+        this.connection = connection;
+        this.hops = parent == null ? 1 : parent.hops + 1;
+        this.parent = parent;
+    }
+}
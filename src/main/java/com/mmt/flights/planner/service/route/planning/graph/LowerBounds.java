@@ -0,0 +1,123 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import java.util.Arrays;
+
+import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
+import static com.mmt.flights.planner.ApiConstants.MINIMUM_LAYOVER_TIME_MINS;
+
+/**
+ * Precomputed lower bounds of the remaining cost from every airport to every destination
+ * The bound from airport a to destination d is the cheapest sum of (flight time + minimum layover) over paths of at
+ * most {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS} - 1 flights. Every flight after the first one of a
+ * route is preceded by at least the minimum layover, so for any airport reached with at least one flight the bound never
+ * overestimates the real remaining cost and satisfies bound(a) <= cost(a, b) + bound(b) (consistent heuristic)
+ * <p>
+ * Only airports with at least one flight get a row and column, the table is a dense row major int matrix with one
+ * row per destination. This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+final class LowerBounds {
+
+    /**
+     * Value used when destination can't be reached with the hops left
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * dense index of every airport id or -1 if airport has no flights
+     */
+    private final int[] index;
+
+    /**
+     * number of airports with flights
+     */
+    private final int size;
+
+    /**
+     * the bounds, bounds[destination * size + airport] using dense indexes
+     */
+    private final int[] bounds;
+
+    /**
+     * Compute the lower bounds for the compressed sparse row adjacency
+     *
+     * @param airportCount  the number of airports
+     * @param offsets       the compressed sparse row offsets
+     * @param edgeTargets   the destination airport id of every edge
+     * @param edgeDurations the flight duration of every edge
+     */
+    LowerBounds(int airportCount, int[] offsets, int[] edgeTargets, int[] edgeDurations) {
+        this.index = new int[airportCount];
+        Arrays.fill(index, -1);
+        int count = 0;
+        for (int airport = 0; airport < airportCount; airport++) {
+            if (offsets[airport] < offsets[airport + 1] && index[airport] < 0) {
+                index[airport] = count++;
+            }
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                if (index[edgeTargets[e]] < 0) {
+                    index[edgeTargets[e]] = count++;
+                }
+            }
+        }
+        this.size = count;
+        this.bounds = new int[size * size];
+
+        // dense edge list with the cheapest weight per airport pair is enough
+        int[] from = new int[edgeTargets.length];
+        int[] to = new int[edgeTargets.length];
+        int[] weight = new int[edgeTargets.length];
+        for (int airport = 0; airport < airportCount; airport++) {
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                from[e] = index[airport];
+                to[e] = index[edgeTargets[e]];
+                weight[e] = edgeDurations[e] + MINIMUM_LAYOVER_TIME_MINS;
+            }
+        }
+
+        // hop bounded bellman ford towards every destination
+        int[] previous = new int[size];
+        for (int destination = 0; destination < size; destination++) {
+            int row = destination * size;
+            Arrays.fill(bounds, row, row + size, UNREACHABLE);
+            bounds[row + destination] = 0;
+            for (int hop = 1; hop < MAXIMUM_HOPS; hop++) {
+                System.arraycopy(bounds, row, previous, 0, size);
+                for (int e = 0; e < from.length; e++) {
+                    int remaining = previous[to[e]];
+                    if (remaining != UNREACHABLE && remaining + weight[e] < bounds[row + from[e]]) {
+                        bounds[row + from[e]] = remaining + weight[e];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the lower bound of the remaining cost from airport to destination
+     * the airport must have been reached with at least one flight
+     *
+     * @param airport     the airport id
+     * @param destination the destination airport id
+     * @return the lower bound or {@link #UNREACHABLE} if destination can't be reached from airport
+     */
+    int get(int airport, int destination) {
+        int a = index[airport];
+        int d = index[destination];
+        if (a < 0 || d < 0) {
+            return airport == destination ? 0 : UNREACHABLE;
+        }
+        return bounds[d * size + a];
+    }
+
+    /**
+     * Get the number of airports in the table
+     *
+     * @return the number of airports with flights
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,329 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
+import static com.mmt.flights.planner.ApiConstants.MINIMUM_LAYOVER_TIME_MINS;
+
+/**
+ * Round based (RAPTOR style) implementation of {@link SearchEngine}
+ * Every airport has a table of routes, a route is the set of flights (trips) from that airport to one other airport
+ * Routes of an airport are sorted by the other airport and trips of a route are sorted by departure minute
+ * Round i takes the i-th flight of the route, only airports marked (reached) in round i - 1 are scanned so the work is
+ * bounded by rounds x touched airports instead of the size of a priority queue. In the last round only the route into
+ * destination is scanned and in the round before only routes to airports with a route into destination are scanned
+ * <p>
+ * Every trip keeps at most k labels per round, see {@link ConnectionScanEngine} for why this is exact and only for
+ * routes of at most 3 flights, the engine refuses to be built for longer routes
+ * <p>
+ * The search honours a {@link SearchBudget}, an expansion is a trip boarded from the labels waiting at its
+ * airport and the frontier is the labels of the current and the next round. A search over budget returns the cheapest
+ * routes found so far, as routes are only final after the last round they may not be the cheapest ones
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class RaptorEngine implements SearchEngine {
+
+    /**
+     * The graph the route tables are built from
+     */
+    private final Graph graph;
+
+    /**
+     * routes of airport i are in range [routeOffsets[i], routeOffsets[i + 1])
+     */
+    private final int[] routeOffsets;
+
+    /**
+     * the airport every route goes to, ascending per airport
+     */
+    private final int[] routeTargets;
+
+    /**
+     * trips of route i are in range [tripOffsets[i], tripOffsets[i + 1])
+     */
+    private final int[] tripOffsets;
+
+    /**
+     * the airport every trip goes to
+     */
+    private final int[] targets;
+
+    /**
+     * departure minute of day of every trip, ascending per route
+     */
+    private final int[] departures;
+
+    /**
+     * arrival minute of day of every trip
+     */
+    private final int[] arrivals;
+
+    /**
+     * flight duration in mins of every trip
+     */
+    private final int[] durations;
+
+    /**
+     * flight id of every trip
+     */
+    private final int[] flights;
+
+    /**
+     * Create a round based engine for the graph
+     *
+     * @param graph the graph
+     * @throws IllegalStateException if routes may have more flights than labels can take without visiting an airport
+     *                               twice
+     */
+    public RaptorEngine(Graph graph) {
+        if (MAXIMUM_HOPS > Label.MAXIMUM_LOOP_FREE_HOPS) {
+            throw new IllegalStateException(String.format("round based search supports routes of at most %d flights",
+                    Label.MAXIMUM_LOOP_FREE_HOPS));
+        }
+        this.graph = graph;
+
+        final int airportCount = graph.getAirportCount();
+        final Adjacency adjacency = graph.getAdjacency();
+        final int[] offsets = adjacency.getOffsets();
+        final int[] edgeTargets = adjacency.getEdgeTargets();
+        final int[] edgeDepartures = adjacency.getEdgeDepartures();
+        final int count = edgeTargets.length;
+
+        // order the edges of every airport by target and than by departure
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Comparator<Integer> comparator = Comparator.<Integer>comparingInt(e -> edgeTargets[e])
+                .thenComparingInt(e -> edgeDepartures[e]).thenComparingInt(e -> e);
+        for (int airport = 0; airport < airportCount; airport++) {
+            Arrays.sort(order, offsets[airport], offsets[airport + 1], comparator);
+        }
+
+        this.routeOffsets = new int[airportCount + 1];
+        this.targets = new int[count];
+        this.departures = new int[count];
+        this.arrivals = new int[count];
+        this.durations = new int[count];
+        this.flights = new int[count];
+        List<Integer> routeTargetList = new ArrayList<>();
+        List<Integer> tripOffsetList = new ArrayList<>();
+        for (int airport = 0; airport < airportCount; airport++) {
+            routeOffsets[airport] = routeTargetList.size();
+            for (int i = offsets[airport]; i < offsets[airport + 1]; i++) {
+                int e = order[i];
+                if (i == offsets[airport] || edgeTargets[e] != targets[i - 1]) {
+                    // a new route starts here
+                    routeTargetList.add(edgeTargets[e]);
+                    tripOffsetList.add(i);
+                }
+                targets[i] = edgeTargets[e];
+                departures[i] = edgeDepartures[e];
+                arrivals[i] = graph.getFlights()[adjacency.getEdgeFlights()[e]].getArrivalMinute();
+                durations[i] = adjacency.getEdgeDurations()[e];
+                flights[i] = adjacency.getEdgeFlights()[e];
+            }
+        }
+        routeOffsets[airportCount] = routeTargetList.size();
+        tripOffsetList.add(count);
+        this.routeTargets = routeTargetList.stream().mapToInt(Integer::intValue).toArray();
+        this.tripOffsets = tripOffsetList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k) {
+        return topKCheapestFlights(start, destination, k, SearchBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        final int s = graph.idOf(start);
+        final int d = graph.idOf(destination);
+        if (s < 0 || d < 0 || !graph.routable(s, d)) {
+            return new ArrayList<>();
+        }
+        final int country = graph.domesticCountry(s, d);
+        final int[] countries = graph.getAirportCountries();
+
+        // round 1, every trip leaving start except the direct ones
+        List<Label> round = new ArrayList<>();
+        for (int r = routeOffsets[s]; r < routeOffsets[s + 1]; r++) {
+            int target = routeTargets[r];
+            if (target == d || (country >= 0 && countries[target] != country)
+                    || !canReach(target, d, MAXIMUM_HOPS - 1)) {
+                continue;
+            }
+            for (int trip = tripOffsets[r]; trip < tripOffsets[r + 1]; trip++) {
+                round.add(new Label(durations[trip], trip, null));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<Label>[] buckets = new List[graph.getAirportCount()];
+        final TopK results = new TopK(k);
+        int expansions = 0;
+        for (int hop = 2; hop <= MAXIMUM_HOPS && !round.isEmpty() && !budget.isExhausted(); hop++) {
+            final List<Integer> marked = mark(round, buckets);
+            final List<Label> next = new ArrayList<>();
+
+            for (int airport : marked) {
+                if (budget.isExhausted()) {
+                    break;
+                }
+                final List<Label> bucket = buckets[airport];
+                // in the last round only the route into destination matters
+                final int first = hop == MAXIMUM_HOPS ? findRoute(airport, d) : routeOffsets[airport];
+                final int last = hop == MAXIMUM_HOPS ? (first < 0 ? first : first + 1) : routeOffsets[airport + 1];
+                for (int r = first; r < last; r++) {
+                    final int target = routeTargets[r];
+                    if (target == s || (country >= 0 && countries[target] != country)) {
+                        continue;
+                    }
+                    if (target != d && !canReach(target, d, MAXIMUM_HOPS - hop)) {
+                        // destination can't be reached with the hops left
+                        continue;
+                    }
+                    for (int trip = tripOffsets[r]; trip < tripOffsets[r + 1]; trip++) {
+                        if (budget.exhausted(++expansions, round.size() + next.size())) {
+                            break;
+                        }
+                        board(trip, bucket, target == d ? results : null, k, results, next);
+                    }
+                }
+                buckets[airport] = null;
+            }
+            round = next;
+        }
+
+        List<Route> routes = new ArrayList<>();
+        for (Label label : results.getLabels()) {
+            routes.add(toRoute(label));
+        }
+        return routes;
+    }
+
+    /**
+     * Check if destination can be reached from airport with at most the given flights
+     * only the last flight is checked (a route into destination), with more hops left every airport is considered
+     *
+     * @param airport     the airport id
+     * @param destination the destination airport id
+     * @param hops        the flights left
+     * @return false if destination is definitely not reachable
+     */
+    private boolean canReach(int airport, int destination, int hops) {
+        if (hops <= 0) {
+            return false;
+        }
+        return hops > 1 || findRoute(airport, destination) >= 0;
+    }
+
+    /**
+     * Binary search the route from airport to target
+     *
+     * @param airport the airport id
+     * @param target  the target airport id
+     * @return the route id or -1 if there is no flight from airport to target
+     */
+    private int findRoute(int airport, int target) {
+        int low = routeOffsets[airport];
+        int high = routeOffsets[airport + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (routeTargets[mid] < target) {
+                low = mid + 1;
+            } else if (routeTargets[mid] > target) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Board a trip from every label in the bucket and keep the k cheapest
+     * Labels in the bucket are sorted by their lower bound so the scan stops as soon as no label can be better
+     *
+     * @param trip        the trip
+     * @param bucket      the labels that arrived at the trip start airport
+     * @param destination the destination results if the trip reaches destination otherwise null
+     * @param k           how many labels to keep
+     * @param results     the destination results, used to prune labels which can never be in top k
+     * @param next        the labels of the next round
+     */
+    private void board(int trip, List<Label> bucket, TopK destination, int k, TopK results, List<Label> next) {
+        final int departure = departures[trip];
+        final int duration = durations[trip];
+        final TopK best = destination != null ? destination : new TopK(k);
+
+        for (Label label : bucket) {
+            int bound = Math.min(best.bound(), results.bound());
+            if (label.base + departure + duration >= bound) {
+                break;
+            }
+            int cost = label.cost + TimeUtil.layoverInMins(arrivals[label.connection], departure,
+                    MINIMUM_LAYOVER_TIME_MINS) + duration;
+            if (cost < bound) {
+                best.offer(new Label(cost, trip, label));
+            }
+        }
+        if (destination == null) {
+            next.addAll(best.getLabels());
+        }
+    }
+
+    /**
+     * Put the labels of a round in the bucket of the airport they arrived at
+     * each bucket is sorted by {@link Label#base} ascending
+     *
+     * @param round   the labels
+     * @param buckets the buckets indexed by airport id, all null on entry
+     * @return the marked airports i.e. airports with a non empty bucket
+     */
+    private List<Integer> mark(List<Label> round, List<Label>[] buckets) {
+        List<Integer> marked = new ArrayList<>();
+        for (Label label : round) {
+            int airport = targets[label.connection];
+            if (buckets[airport] == null) {
+                buckets[airport] = new ArrayList<>();
+                marked.add(airport);
+            }
+            label.base = label.cost + MINIMUM_LAYOVER_TIME_MINS
+                    - (arrivals[label.connection] + MINIMUM_LAYOVER_TIME_MINS) % TimeUtil.MINS_IN_DAY;
+            buckets[airport].add(label);
+        }
+        for (int airport : marked) {
+            buckets[airport].sort(Comparator.comparingInt(label -> label.base));
+        }
+        return marked;
+    }
+
+    /**
+     * Materialize the route ending at the given label by walking the parent pointers
+     *
+     * @param label the label at destination
+     * @return the route with flights in travel order
+     */
+    private Route toRoute(Label label) {
+        Flight[] path = new Flight[label.hops];
+        for (Label node = label; node != null; node = node.parent) {
+            path[node.hops - 1] = graph.getFlights()[flights[node.connection]];
+        }
+        return Route.builder().cost(label.cost).flights(Arrays.asList(path)).build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import java.util.Arrays;
+
+import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
+
+/**
+ * Precomputed reachability bitsets of an adjacency
+ * For every destination and hop count h in [1, {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS}) there is
+ * a bitset of the airports with a path of at most h flights to destination, and one more bitset of the start airports
+ * with a connecting route (at least 2 flights, the first one not into destination) of at most
+ * {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS} flights. Paths are not checked for loops so the bits
+ * over approximate, a clear bit means there is definitely no route
+ * <p>
+ * Only airports with at least one flight get a bit, bitsets are rows of longs in one array.
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+final class Reachability {
+
+    /**
+     * dense index of every airport id or -1 if airport has no flights
+     */
+    private final int[] index;
+
+    /**
+     * number of longs per bitset
+     */
+    private final int words;
+
+    /**
+     * the bitsets, MAXIMUM_HOPS bitsets per destination. bitset h - 1 is reachability within h flights for
+     * h < MAXIMUM_HOPS and the last bitset has the start airports with a connecting route
+     */
+    private final long[] bits;
+
+    /**
+     * Compute the reachability of the compressed sparse row adjacency
+     *
+     * @param airportCount the number of airports
+     * @param offsets      the compressed sparse row offsets
+     * @param edgeTargets  the destination airport id of every edge
+     */
+    Reachability(int airportCount, int[] offsets, int[] edgeTargets) {
+        this.index = new int[airportCount];
+        Arrays.fill(index, -1);
+        int size = 0;
+        for (int airport = 0; airport < airportCount; airport++) {
+            if (offsets[airport] < offsets[airport + 1] && index[airport] < 0) {
+                index[airport] = size++;
+            }
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                if (index[edgeTargets[e]] < 0) {
+                    index[edgeTargets[e]] = size++;
+                }
+            }
+        }
+        this.words = (size + 63) >>> 6;
+        this.bits = new long[size * MAXIMUM_HOPS * words];
+
+        // dense edge list
+        int[] from = new int[edgeTargets.length];
+        int[] to = new int[edgeTargets.length];
+        for (int airport = 0; airport < airportCount; airport++) {
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                from[e] = index[airport];
+                to[e] = index[edgeTargets[e]];
+            }
+        }
+
+        for (int destination = 0; destination < size; destination++) {
+            int row = destination * MAXIMUM_HOPS * words;
+            // within 1 flight, every airport with a flight into destination
+            for (int e = 0; e < from.length; e++) {
+                if (to[e] == destination) {
+                    set(row, from[e]);
+                }
+            }
+            // within h flights, within h - 1 flights or a flight to an airport within h - 1 flights
+            for (int hop = 2; hop < MAXIMUM_HOPS; hop++) {
+                int previous = row + (hop - 2) * words;
+                int current = row + (hop - 1) * words;
+                System.arraycopy(bits, previous, bits, current, words);
+                for (int e = 0; e < from.length; e++) {
+                    if (test(previous, to[e])) {
+                        set(current, from[e]);
+                    }
+                }
+            }
+            // connecting routes, a first flight not into destination followed by at most MAXIMUM_HOPS - 1 flights
+            int reach = row + (MAXIMUM_HOPS - 2) * words;
+            int routable = row + (MAXIMUM_HOPS - 1) * words;
+            for (int e = 0; e < from.length; e++) {
+                if (from[e] != destination && to[e] != destination && to[e] != from[e] && test(reach, to[e])) {
+                    set(routable, from[e]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if there may be a connecting route from start to destination
+     *
+     * @param start       the start airport id
+     * @param destination the destination airport id
+     * @return false if there is definitely no route of 2 to MAXIMUM_HOPS flights, true otherwise
+     */
+    boolean routable(int start, int destination) {
+        int s = index[start];
+        int d = index[destination];
+        return s >= 0 && d >= 0 && test((d * MAXIMUM_HOPS + MAXIMUM_HOPS - 1) * words, s);
+    }
+
+    /**
+     * Check if destination may be reached from airport with at most the given flights
+     *
+     * @param airport     the airport id
+     * @param destination the destination airport id
+     * @param hops        the flights left
+     * @return false if destination definitely can't be reached, true otherwise
+     */
+    boolean reaches(int airport, int destination, int hops) {
+        if (airport == destination) {
+            return true;
+        }
+        int a = index[airport];
+        int d = index[destination];
+        return hops > 0 && a >= 0 && d >= 0 && test((d * MAXIMUM_HOPS + Math.min(hops, MAXIMUM_HOPS - 1) - 1) * words, a);
+    }
+
+    /**
+     * Get the size of the bitsets
+     *
+     * @return the number of bytes
+     */
+    long bytes() {
+        return 8L * bits.length;
+    }
+
+    /**
+     * Set a bit of a bitset
+     *
+     * @param row the first long of the bitset
+     * @param bit the dense airport index
+     */
+    private void set(int row, int bit) {
+        bits[row + (bit >>> 6)] |= 1L << bit;
+    }
+
+    /**
+     * Test a bit of a bitset
+     *
+     * @param row the first long of the bitset
+     * @param bit the dense airport index
+     * @return true if the bit is set
+     */
+    private boolean test(int row, int bit) {
+        return (bits[row + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+}
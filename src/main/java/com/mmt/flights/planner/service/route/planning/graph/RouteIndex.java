@@ -0,0 +1,298 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.ValidationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Materialized origin destination route index
+ * The schedule is a static daily timetable so the top routes of every (start, destination) pair are fixed until the
+ * next load. The index stores the best N routes of every pair of airports with flights in compact arrays and answers
+ * queries with a lookup, queries for more than N routes fall back to the live search engine
+ * A pair with less than N stored routes has no more routes at all, so such pairs are answered for any k
+ * After a schedule delta only the pairs the delta may affect are searched again, see {@link #update}
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class RouteIndex implements SearchEngine {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RouteIndex.class);
+
+    /**
+     * The graph the index is built from
+     */
+    private final Graph graph;
+
+    /**
+     * The engine for queries the index can't answer
+     */
+    private final SearchEngine fallback;
+
+    /**
+     * how many routes are stored per pair at max
+     */
+    private final int size;
+
+    /**
+     * dense index of every airport id or -1 if the airport has no flights
+     */
+    private final int[] index;
+
+    /**
+     * number of airports with flights
+     */
+    private final int airportCount;
+
+    /**
+     * routes of pair (start, destination) are in range [pairOffsets[p], pairOffsets[p + 1]) where
+     * p = start * airportCount + destination using dense indexes
+     */
+    private final int[] pairOffsets;
+
+    /**
+     * the cost of every route
+     */
+    private final int[] routeCosts;
+
+    /**
+     * flights of route i are in range [flightOffsets[i], flightOffsets[i + 1])
+     */
+    private final int[] flightOffsets;
+
+    /**
+     * the flights of all routes
+     */
+    private final Flight[] routeFlights;
+
+    /**
+     * Create the index
+     *
+     * @param graph         the graph
+     * @param fallback      the live search engine
+     * @param size          the number of routes stored per pair
+     * @param index         the dense index of every airport id
+     * @param airportCount  the number of airports with flights
+     * @param pairOffsets   the route offsets of every pair
+     * @param routeCosts    the cost of every route
+     * @param flightOffsets the flight offsets of every route
+     * @param routeFlights  the flights of all routes
+     */
+    private RouteIndex(Graph graph, SearchEngine fallback, int size, int[] index, int airportCount, int[] pairOffsets,
+                       int[] routeCosts, int[] flightOffsets, Flight[] routeFlights) {
+        this.graph = graph;
+        this.fallback = fallback;
+        this.size = size;
+        this.index = index;
+        this.airportCount = airportCount;
+        this.pairOffsets = pairOffsets;
+        this.routeCosts = routeCosts;
+        this.flightOffsets = flightOffsets;
+        this.routeFlights = routeFlights;
+    }
+
+    /**
+     * Build the index by running the engine for every pair of airports with flights
+     * every start airport is a separate task on a dedicated fork join pool
+     *
+     * @param graph       the graph
+     * @param engine      the engine to compute the routes with, also used as fallback
+     * @param size        the number of routes to store per pair
+     * @param parallelism the number of threads to build with
+     * @return the index
+     * @throws IllegalStateException if the build is interrupted or fails
+     */
+    public static RouteIndex build(Graph graph, SearchEngine engine, int size, int parallelism) {
+        ValidationUtil.assertNotNull(graph, "graph must not be null");
+        ValidationUtil.assertNotNull(engine, "engine must not be null");
+        ValidationUtil.assertTrue(size > 0, "size should be greater than 0");
+        ValidationUtil.assertTrue(parallelism > 0, "parallelism should be greater than 0");
+        return build(graph, engine, size, parallelism,
+                (start, destination) -> engine.topKCheapestFlights(start, destination, size));
+    }
+
+    /**
+     * Update the index for a schedule delta
+     * the stored routes of the pairs the update can't affect are kept, the routes of every other pair are computed by
+     * the engine of the updated graph
+     *
+     * @param update      the schedule update
+     * @param engine      the engine of the updated graph to compute the routes with, also used as fallback
+     * @param parallelism the number of threads to build with
+     * @return the index of the updated graph
+     * @throws IllegalStateException if the build is interrupted or fails
+     */
+    public RouteIndex update(ScheduleUpdate update, SearchEngine engine, int parallelism) {
+        ValidationUtil.assertNotNull(update, "update must not be null");
+        ValidationUtil.assertNotNull(engine, "engine must not be null");
+        ValidationUtil.assertTrue(parallelism > 0, "parallelism should be greater than 0");
+        return build(update.getGraph(), engine, size, parallelism, (start, destination) -> {
+            List<Route> stored = update.affects(start.getCode(), destination.getCode()) ? null
+                    : stored(graph.idOf(start), graph.idOf(destination), size);
+            return stored != null ? stored : engine.topKCheapestFlights(start, destination, size);
+        });
+    }
+
+    /**
+     * Build the index with the routes of every pair of airports with flights
+     * every start airport is a separate task on a dedicated fork join pool
+     *
+     * @param graph       the graph
+     * @param engine      the fallback engine
+     * @param size        the number of routes stored per pair
+     * @param parallelism the number of threads to build with
+     * @param routes      the top size routes of a pair
+     * @return the index
+     * @throws IllegalStateException if the build is interrupted or fails
+     */
+    private static RouteIndex build(Graph graph, SearchEngine engine, int size, int parallelism,
+                                    BiFunction<Airport, Airport, List<Route>> routes) {
+        final long begin = System.currentTimeMillis();
+        final Adjacency adjacency = graph.getAdjacency();
+        final int[] offsets = adjacency.getOffsets();
+        final int[] edgeTargets = adjacency.getEdgeTargets();
+        final Airport[] airports = graph.getAirports();
+
+        // dense index of airports with flights
+        int[] index = new int[airports.length];
+        Arrays.fill(index, -1);
+        List<Airport> indexed = new ArrayList<>();
+        for (int airport = 0; airport < airports.length; airport++) {
+            if (offsets[airport] < offsets[airport + 1] && index[airport] < 0) {
+                index[airport] = indexed.size();
+                indexed.add(airports[airport]);
+            }
+            for (int e = offsets[airport]; e < offsets[airport + 1]; e++) {
+                if (index[edgeTargets[e]] < 0) {
+                    index[edgeTargets[e]] = indexed.size();
+                    indexed.add(airports[edgeTargets[e]]);
+                }
+            }
+        }
+        final int count = indexed.size();
+
+        List<List<List<Route>>> rows;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            rows = pool.submit(() -> IntStream.range(0, count).parallel()
+                    .mapToObj(start -> IntStream.range(0, count)
+                            .mapToObj(destination -> start == destination ? new ArrayList<Route>()
+                                    : routes.apply(indexed.get(start), indexed.get(destination)))
+                            .collect(Collectors.toList()))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("route index build was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("route index build failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // flatten into the compact arrays
+        int routeCount = 0;
+        int flightCount = 0;
+        for (List<List<Route>> row : rows) {
+            for (List<Route> pairRoutes : row) {
+                routeCount += pairRoutes.size();
+                for (Route route : pairRoutes) {
+                    flightCount += route.getFlights().size();
+                }
+            }
+        }
+        int[] pairOffsets = new int[count * count + 1];
+        int[] routeCosts = new int[routeCount];
+        int[] flightOffsets = new int[routeCount + 1];
+        Flight[] routeFlights = new Flight[flightCount];
+        int pair = 0;
+        int r = 0;
+        int f = 0;
+        for (List<List<Route>> row : rows) {
+            for (List<Route> pairRoutes : row) {
+                pairOffsets[pair++] = r;
+                for (Route route : pairRoutes) {
+                    routeCosts[r] = route.getCost();
+                    flightOffsets[r++] = f;
+                    for (Flight flight : route.getFlights()) {
+                        routeFlights[f++] = flight;
+                    }
+                }
+            }
+        }
+        pairOffsets[pair] = r;
+        flightOffsets[r] = f;
+
+        long bytes = 4L * (index.length + pairOffsets.length + routeCosts.length + flightOffsets.length + routeFlights.length);
+        LOGGER.info("Built route index of {} pairs and {} routes (top {}) with parallelism {} in {} ms, approx {} bytes",
+                (long) count * (count - 1), routeCount, size, parallelism, System.currentTimeMillis() - begin, bytes);
+
+        return new RouteIndex(graph, engine, size, index, count, pairOffsets, routeCosts, flightOffsets, routeFlights);
+    }
+
+    /**
+     * {@inheritDoc}
+     * answered from the index if k is at most the stored size (or the pair has less routes than the stored size)
+     * otherwise answered by the fallback engine
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k) {
+        return topKCheapestFlights(start, destination, k, SearchBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * the budget only applies to the queries answered by the fallback engine
+     */
+    @Override
+    public List<Route> topKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        final int s = graph.idOf(start);
+        final int d = graph.idOf(destination);
+        if (s < 0 || d < 0 || index[s] < 0 || index[d] < 0) {
+            // no flights at start or destination
+            return fallback.topKCheapestFlights(start, destination, k, budget);
+        }
+        final int pair = index[s] * airportCount + index[d];
+        final int stored = pairOffsets[pair + 1] - pairOffsets[pair];
+        if (k > size && stored == size) {
+            return fallback.topKCheapestFlights(start, destination, k, budget);
+        }
+        return stored(s, d, k);
+    }
+
+    /**
+     * Materialize the stored routes of a pair
+     *
+     * @param start       the start airport id
+     * @param destination the destination airport id
+     * @param k           the maximum number of routes
+     * @return the cheapest stored routes, at most k, or null if start or destination has no flights
+     */
+    private List<Route> stored(int start, int destination, int k) {
+        if (start < 0 || destination < 0 || index[start] < 0 || index[destination] < 0) {
+            return null;
+        }
+        final int pair = index[start] * airportCount + index[destination];
+        final int from = pairOffsets[pair];
+        final int stored = pairOffsets[pair + 1] - from;
+
+        List<Route> routes = new ArrayList<>(Math.min(k, stored));
+        for (int r = from; r < from + Math.min(k, stored); r++) {
+            List<Flight> flights = Arrays.asList(Arrays.copyOfRange(routeFlights, flightOffsets[r], flightOffsets[r + 1]));
+            routes.add(Route.builder().cost(routeCosts[r]).flights(flights).build());
+        }
+        return routes;
+    }
+}
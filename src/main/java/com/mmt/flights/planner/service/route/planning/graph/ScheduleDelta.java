@@ -0,0 +1,182 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.ValidationUtil;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of flight changes applied to a graph with {@link Graph#apply(ScheduleDelta)}
+ * A flight is identified by its code, the same code may be used by several legs (a multi leg flight) so a change may
+ * be narrowed down to the leg between two airports. Changes are applied in the order they were added
+ * This class is not thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class ScheduleDelta {
+
+    /**
+     * The kind of change
+     */
+    public enum Type {
+
+        /**
+         * add a new leg
+         */
+        ADD,
+
+        /**
+         * remove every leg matching the code (and airports if given)
+         */
+        REMOVE,
+
+        /**
+         * change the departure and arrival time of the leg matching the code (and airports if given)
+         */
+        RETIME
+    }
+
+    /**
+     * the changes in order
+     */
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Add a leg
+     *
+     * @param code      the flight code
+     * @param from      the departure airport code
+     * @param to        the arrival airport code
+     * @param departure the departure time in HHMM format
+     * @param arrival   the arrival time in HHMM format
+     * @return this delta for chaining
+     * @throws IllegalArgumentException if any argument is blank
+     */
+    public ScheduleDelta add(String code, String from, String to, String departure, String arrival) {
+        ValidationUtil.assertValid(from, "from must be valid");
+        ValidationUtil.assertValid(to, "to must be valid");
+        ValidationUtil.assertValid(departure, "departure must be valid");
+        ValidationUtil.assertValid(arrival, "arrival must be valid");
+        return change(Type.ADD, code, from, to, departure, arrival);
+    }
+
+    /**
+     * Remove the legs of a flight
+     *
+     * @param code the flight code
+     * @param from the departure airport code or null for any
+     * @param to   the arrival airport code or null for any
+     * @return this delta for chaining
+     * @throws IllegalArgumentException if code is blank
+     */
+    public ScheduleDelta remove(String code, String from, String to) {
+        return change(Type.REMOVE, code, from, to, null, null);
+    }
+
+    /**
+     * Change the departure and arrival time of a leg
+     * if the code has several legs the airports must single one out
+     *
+     * @param code      the flight code
+     * @param from      the departure airport code or null for any
+     * @param to        the arrival airport code or null for any
+     * @param departure the new departure time in HHMM format
+     * @param arrival   the new arrival time in HHMM format
+     * @return this delta for chaining
+     * @throws IllegalArgumentException if code or any time is blank
+     */
+    public ScheduleDelta retime(String code, String from, String to, String departure, String arrival) {
+        ValidationUtil.assertValid(departure, "departure must be valid");
+        ValidationUtil.assertValid(arrival, "arrival must be valid");
+        return change(Type.RETIME, code, from, to, departure, arrival);
+    }
+
+    /**
+     * Get the changes in order
+     *
+     * @return the unmodifiable changes
+     */
+    public List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Check if the delta has no changes
+     *
+     * @return true if there are no changes
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Add a change
+     *
+     * @param type      the kind of change
+     * @param code      the flight code
+     * @param from      the departure airport code or null
+     * @param to        the arrival airport code or null
+     * @param departure the departure time or null
+     * @param arrival   the arrival time or null
+     * @return this delta for chaining
+     */
+    private ScheduleDelta change(Type type, String code, String from, String to, String departure, String arrival) {
+        ValidationUtil.assertValid(code, "code must be valid");
+        changes.add(new Change(type, code, from, to, departure, arrival));
+        return this;
+    }
+
+    /**
+     * A single flight change
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Change {
+
+        /**
+         * the kind of change
+         */
+        private final Type type;
+
+        /**
+         * the flight code
+         */
+        private final String code;
+
+        /**
+         * the departure airport code, null matches any
+         */
+        private final String from;
+
+        /**
+         * the arrival airport code, null matches any
+         */
+        private final String to;
+
+        /**
+         * the departure time in HHMM format, null for removals
+         */
+        private final String departure;
+
+        /**
+         * the arrival time in HHMM format, null for removals
+         */
+        private final String arrival;
+
+        /**
+         * Check if the change applies to a leg
+         *
+         * @param flight the leg
+         * @return true if the airports given by the change are the ones of the leg
+         */
+        boolean matches(Flight flight) {
+            return (from == null || from.equals(flight.getDepartureAirport().getCode()))
+                    && (to == null || to.equals(flight.getArrivalAirport().getCode()));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
+
+/**
+ * The result of applying a {@link ScheduleDelta} to a graph
+ * It has the new graph, the airports the changed flights depart from or arrive at, and can tell which origin
+ * destination pairs may have other routes now. A pair is affected if a changed flight, before or after the change,
+ * could be part of one of its routes according to the {@link Reachability} of the graph it belongs to. Plans and
+ * indexed routes of every other pair are the same for both graphs
+ * This class is immutable and thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public class ScheduleUpdate {
+
+    /**
+     * the graph with the changes applied
+     */
+    @Getter
+    private final Graph graph;
+
+    /**
+     * codes of the airports the changed flights depart from or arrive at, in code order
+     */
+    @Getter
+    private final Set<String> affectedAirports;
+
+    /**
+     * number of flights added
+     */
+    @Getter
+    private final int added;
+
+    /**
+     * number of flights removed
+     */
+    @Getter
+    private final int removed;
+
+    /**
+     * number of flights retimed
+     */
+    @Getter
+    private final int retimed;
+
+    /**
+     * the distinct (departure, arrival) airport ids of the changed flights, encoded as departure * airports + arrival
+     */
+    private final long[] legs;
+
+    /**
+     * the reachability of the graph before the changes
+     */
+    private final Reachability before;
+
+    /**
+     * the reachability of the graph after the changes
+     */
+    private final Reachability after;
+
+    /**
+     * Create the update
+     *
+     * @param graph            the graph with the changes applied
+     * @param affectedAirports the codes of the airports the changed flights depart from or arrive at
+     * @param legs             the distinct encoded airport ids of the changed flights
+     * @param before           the reachability before the changes
+     * @param after            the reachability after the changes
+     * @param added            the number of flights added
+     * @param removed          the number of flights removed
+     * @param retimed          the number of flights retimed
+     */
+    ScheduleUpdate(Graph graph, Set<String> affectedAirports, long[] legs, Reachability before, Reachability after,
+                   int added, int removed, int retimed) {
+        this.graph = graph;
+        this.affectedAirports = Collections.unmodifiableSet(affectedAirports);
+        this.legs = legs;
+        this.before = before;
+        this.after = after;
+        this.added = added;
+        this.removed = removed;
+        this.retimed = retimed;
+    }
+
+    /**
+     * Check if the routes between two airports may differ between the graph before and after the changes
+     * that is if some changed flight a - b can be part of a route, start reaches a with h flights and b reaches
+     * destination with the {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS} - h - 1 flights left. The check
+     * over approximates, false means the direct flights and cheapest routes are exactly the same
+     *
+     * @param start       the start airport code
+     * @param destination the destination airport code
+     * @return true if the pair may be affected, false if it is definitely not
+     */
+    public boolean affects(String start, String destination) {
+        final int s = graph.idOf(graph.getAirport(start));
+        final int d = graph.idOf(graph.getAirport(destination));
+        if (s < 0 || d < 0) {
+            return false;
+        }
+        final int airportCount = graph.getAirportCount();
+        for (long leg : legs) {
+            int from = (int) (leg / airportCount);
+            int to = (int) (leg % airportCount);
+            if (routesThrough(before, s, d, from, to) || routesThrough(after, s, d, from, to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a flight from - to may be part of a route from start to destination
+     *
+     * @param reachability the reachability of the graph
+     * @param start        the start airport id
+     * @param destination  the destination airport id
+     * @param from         the departure airport id of the flight
+     * @param to           the arrival airport id of the flight
+     * @return false if the flight is definitely not part of any route
+     */
+    private static boolean routesThrough(Reachability reachability, int start, int destination, int from, int to) {
+        for (int hops = 0; hops < MAXIMUM_HOPS; hops++) {
+            if (reachability.reaches(start, from, hops)
+                    && reachability.reaches(to, destination, MAXIMUM_HOPS - hops - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
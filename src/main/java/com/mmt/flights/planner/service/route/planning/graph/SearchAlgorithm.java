@@ -0,0 +1,25 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+/**
+ * The algorithms available to answer top k cheapest route queries
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public enum SearchAlgorithm {
+
+    /**
+     * best first enumeration of paths, see {@link Graph#topKCheapestFlights(Airport, Airport, int)}
+     */
+    BFS,
+
+    /**
+     * hop bounded connection scan, see {@link ConnectionScanEngine}
+     */
+    CSA,
+
+    /**
+     * round based search over per airport route tables, see {@link RaptorEngine}
+     */
+    RAPTOR
+}
@@ -0,0 +1,167 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.ValidationUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of the work a single search may do
+ * A search stops as soon as its wall clock deadline passes, it expanded (popped) more than the maximum labels or its
+ * frontier grew beyond the maximum size. The routes found until then are returned and the budget remembers what ran
+ * out so the caller can flag the result as partial
+ * A budget belongs to a single request, it is not thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public final class SearchBudget {
+
+    /**
+     * The deadline is checked once every these many expansions
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+
+    /**
+     * A budget without limits, it is never exhausted so it can be shared
+     */
+    private static final SearchBudget UNLIMITED = new SearchBudget(0, 0, 0);
+
+    /**
+     * The reason a search stopped early
+     */
+    public enum Exhaustion {
+
+        /**
+         * the wall clock deadline passed
+         */
+        DEADLINE,
+
+        /**
+         * too many labels were expanded
+         */
+        EXPANSIONS,
+
+        /**
+         * the frontier grew too large
+         */
+        FRONTIER
+    }
+
+    /**
+     * the deadline in {@link System#nanoTime()} terms, only if timed
+     */
+    private final long deadline;
+
+    /**
+     * whether there is a deadline
+     */
+    private boolean timed;
+
+    /**
+     * the maximum number of expanded labels or 0 if unlimited
+     */
+    private int maximumExpansions;
+
+    /**
+     * the maximum frontier size or 0 if unlimited
+     */
+    private int maximumFrontier;
+
+    /**
+     * what ran out or null if the budget is not exhausted
+     */
+    private Exhaustion exhaustion;
+
+    /**
+     * Create a budget starting now
+     *
+     * @param timeoutMillis     the wall clock time in millis the search may run or 0 if unlimited
+     * @param maximumExpansions the maximum number of expanded labels or 0 if unlimited
+     * @param maximumFrontier   the maximum frontier size or 0 if unlimited
+     */
+    private SearchBudget(long timeoutMillis, int maximumExpansions, int maximumFrontier) {
+        this.timed = timeoutMillis > 0;
+        this.deadline = timed ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        this.maximumExpansions = maximumExpansions;
+        this.maximumFrontier = maximumFrontier;
+    }
+
+    /**
+     * Create a budget starting now
+     *
+     * @param timeoutMillis     the wall clock time in millis the search may run or 0 if unlimited
+     * @param maximumExpansions the maximum number of expanded labels or 0 if unlimited
+     * @param maximumFrontier   the maximum frontier size or 0 if unlimited
+     * @return the budget
+     * @throws IllegalArgumentException if any limit is negative
+     */
+    public static SearchBudget of(long timeoutMillis, int maximumExpansions, int maximumFrontier) {
+        ValidationUtil.assertTrue(timeoutMillis >= 0, "timeoutMillis should not be negative");
+        ValidationUtil.assertTrue(maximumExpansions >= 0, "maximumExpansions should not be negative");
+        ValidationUtil.assertTrue(maximumFrontier >= 0, "maximumFrontier should not be negative");
+        if (timeoutMillis == 0 && maximumExpansions == 0 && maximumFrontier == 0) {
+            return UNLIMITED;
+        }
+        return new SearchBudget(timeoutMillis, maximumExpansions, maximumFrontier);
+    }
+
+    /**
+     * Get the budget without limits
+     *
+     * @return the unlimited budget
+     */
+    public static SearchBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Check the budget, a search calls this once per expanded label
+     *
+     * @param expansions the number of labels expanded so far
+     * @param frontier   the current frontier size
+     * @return true if the search must stop
+     */
+    boolean exhausted(int expansions, int frontier) {
+        if (exhaustion == null) {
+            if (maximumExpansions > 0 && expansions > maximumExpansions) {
+                exhaustion = Exhaustion.EXPANSIONS;
+            } else if (maximumFrontier > 0 && frontier > maximumFrontier) {
+                exhaustion = Exhaustion.FRONTIER;
+            } else if (timed && expansions % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                exhaustion = Exhaustion.DEADLINE;
+            }
+        }
+        return exhaustion != null;
+    }
+
+    /**
+     * Lift every limit so the search goes on without a budget
+     * used once the part of a search the budget was meant for is done, like the first page of a paged search. An
+     * exhausted budget stays exhausted
+     */
+    public void lift() {
+        if (this != UNLIMITED) {
+            timed = false;
+            maximumExpansions = 0;
+            maximumFrontier = 0;
+        }
+    }
+
+    /**
+     * Check if a search stopped early because of this budget
+     *
+     * @return true if the budget is exhausted
+     */
+    public boolean isExhausted() {
+        return exhaustion != null;
+    }
+
+    /**
+     * Get what ran out
+     *
+     * @return the exhaustion reason or null if the budget is not exhausted
+     */
+    public Exhaustion getExhaustion() {
+        return exhaustion;
+    }
+}
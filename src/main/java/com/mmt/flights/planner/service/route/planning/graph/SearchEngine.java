@@ -0,0 +1,74 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Route search engine api
+ * A search engine answers top k cheapest route queries over a {@link Graph}
+ * NOTE: Constraints every implementation must honour
+ * 1. Direct flights are not part of the result
+ * 2. A route has at most {@link com.mmt.flights.planner.ApiConstants#MAXIMUM_HOPS} flights and never visits an airport twice
+ * 3. Between two flights there is at least {@link com.mmt.flights.planner.ApiConstants#MINIMUM_LAYOVER_TIME_MINS}
+ * layover, wrapping around midnight to the next day
+ * 4. If both start and destination is in the same country, route shouldn't go out of that country (domestic travel)
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public interface SearchEngine {
+
+    /**
+     * get a list of top k cheapest flights from start to destination
+     * The cost is defined as the time taken from start point to destination point
+     *
+     * @param start       the start point
+     * @param destination the destination point
+     * @param k           how many top results to return
+     * @return a list of size at max k or less sorted by cost (if there are less than k possible ways from start to destination)
+     */
+    List<Route> topKCheapestFlights(Airport start, Airport destination, int k);
+
+    /**
+     * get a list of top k cheapest flights from start to destination doing at most the work the budget allows
+     * if the budget runs out the routes found so far are returned and {@link SearchBudget#isExhausted()} is true
+     * by default the budget is not enforced
+     *
+     * @param start       the start point
+     * @param destination the destination point
+     * @param k           how many top results to return
+     * @param budget      the search budget
+     * @return a list of size at max k or less sorted by cost
+     */
+    default List<Route> topKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        return topKCheapestFlights(start, destination, k);
+    }
+
+    /**
+     * iterate the top k cheapest flights from start to destination in ascending order of cost
+     * engines which find routes one by one return every route as soon as it is found, by default the routes are
+     * computed by {@link #topKCheapestFlights(Airport, Airport, int)} before the first one is returned
+     *
+     * @param start       the start point
+     * @param destination the destination point
+     * @param k           how many top results to return
+     * @return an iterator of at max k routes sorted by cost
+     */
+    default Iterator<Route> iterateTopKCheapestFlights(Airport start, Airport destination, int k) {
+        return iterateTopKCheapestFlights(start, destination, k, SearchBudget.unlimited());
+    }
+
+    /**
+     * iterate the top k cheapest flights from start to destination in ascending order of cost doing at most the work
+     * the budget allows, the iteration ends early if the budget runs out
+     *
+     * @param start       the start point
+     * @param destination the destination point
+     * @param k           how many top results to return
+     * @param budget      the search budget
+     * @return an iterator of at max k routes sorted by cost
+     */
+    default Iterator<Route> iterateTopKCheapestFlights(Airport start, Airport destination, int k, SearchBudget budget) {
+        return topKCheapestFlights(start, destination, k, budget).iterator();
+    }
+}
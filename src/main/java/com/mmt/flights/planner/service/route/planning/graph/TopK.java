@@ -0,0 +1,70 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded list of the k cheapest labels sorted by cost and than by hops
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+final class TopK {
+
+    /**
+     * the maximum size
+     */
+    private final int k;
+
+    /**
+     * labels in ascending order
+     */
+    @Getter
+    private final List<Label> labels = new ArrayList<>();
+
+    /**
+     * Create an empty top k list
+     *
+     * @param k the maximum size
+     */
+    TopK(int k) {
+        this.k = k;
+    }
+
+    /**
+     * A label must cost less than the bound to be accepted
+     *
+     * @return the bound
+     */
+    int bound() {
+        return labels.size() < k ? Integer.MAX_VALUE : labels.get(k - 1).cost;
+    }
+
+    /**
+     * Offer a label, the label is dropped if it is not in the top k
+     *
+     * @param label the label
+     */
+    void offer(Label label) {
+        int low = 0;
+        int high = labels.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Label other = labels.get(mid);
+            if (other.cost < label.cost || (other.cost == label.cost && other.hops <= label.hops)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low >= k) {
+            return;
+        }
+        labels.add(low, label);
+        if (labels.size() > k) {
+            labels.remove(labels.size() - 1);
+        }
+    }
+}
@@ -1,54 +1,578 @@
 package com.mmt.flights.planner.service.route.planning.impl;
 
+import com.mmt.flights.planner.ErrorCodes;
+import com.mmt.flights.planner.api.ApiClientError;
+import com.mmt.flights.planner.api.ApiError;
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.properties.SearchProperties;
+import com.mmt.flights.planner.service.exception.ClientErrorException;
+import com.mmt.flights.planner.service.exception.ServiceException;
 import com.mmt.flights.planner.service.route.PlannerService;
 import com.mmt.flights.planner.service.route.data.DataLoader;
+import com.mmt.flights.planner.service.route.model.BatchPlanItem;
 import com.mmt.flights.planner.service.route.model.Plan;
+import com.mmt.flights.planner.service.route.model.RouteEvent;
+import com.mmt.flights.planner.service.route.model.ScheduleDeltaResult;
 import com.mmt.flights.planner.service.route.model.SearchRequest;
-import com.mmt.flights.planner.service.route.planning.cache.Airports;
+import com.mmt.flights.planner.service.route.planning.cache.InFlightSearches;
+import com.mmt.flights.planner.service.route.planning.cache.PlanCache;
+import com.mmt.flights.planner.service.route.planning.cache.SearchCursors;
 import com.mmt.flights.planner.service.route.planning.graph.Airport;
+import com.mmt.flights.planner.service.route.planning.graph.ConnectionScanEngine;
 import com.mmt.flights.planner.service.route.planning.graph.Graph;
+import com.mmt.flights.planner.service.route.planning.graph.RaptorEngine;
+import com.mmt.flights.planner.service.route.planning.graph.RouteIndex;
 import com.mmt.flights.planner.service.route.planning.graph.Route;
+import com.mmt.flights.planner.service.route.planning.graph.ScheduleDelta;
+import com.mmt.flights.planner.service.route.planning.graph.ScheduleUpdate;
+import com.mmt.flights.planner.service.route.planning.graph.SearchAlgorithm;
+import com.mmt.flights.planner.service.route.planning.graph.SearchBudget;
+import com.mmt.flights.planner.service.route.planning.graph.SearchEngine;
+import com.mmt.flights.planner.service.route.warmup.QueryHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Default implementation of {@link PlannerService}
+ * The graph and search engine of the loaded schedule are an immutable snapshot published with a single atomic
+ * reference swap, every request reads the snapshot once so a reload or delta never changes the schedule of a running
+ * search
  *
  * @author ritesh
  * @version 1.0.0
  */
 @Service
-public class DefaultPlannerService implements PlannerService {
+public class DefaultPlannerService implements PlannerService, DisposableBean {
 
     /**
-     * Graph object to access traversal api's
+     * Private static class level logger
      */
-    private final Graph graph;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultPlannerService.class);
+
+    /**
+     * The data loader service to load graph data
+     */
+    private final DataLoader dataLoader;
+
+    /**
+     * The current schedule snapshot
+     */
+    private final AtomicReference<Snapshot> snapshot;
+
+    /**
+     * The plan cache or null if disabled
+     */
+    private final PlanCache planCache;
+
+    /**
+     * The running searches concurrent identical requests share
+     */
+    private final InFlightSearches inFlightSearches;
+
+    /**
+     * The suspended searches of paged plans
+     */
+    private final SearchCursors searchCursors;
+
+    /**
+     * The maximum number of routes a paged plan returns over all its pages
+     */
+    private final int maximumPagedRoutes;
+
+    /**
+     * The bounded pool running the searches of batch requests
+     */
+    private final ForkJoinPool batchPool;
+
+    /**
+     * The configured search budget limits, a request may only tighten them
+     */
+    private final SearchProperties searchProperties;
+
+    /**
+     * Number of searches stopped early per exhausted budget limit
+     */
+    private final Map<SearchBudget.Exhaustion, Counter> budgetExhaustions;
+
+    /**
+     * The counts of the planned pairs of live traffic
+     */
+    private final QueryHistory queryHistory;
 
     /**
      * Default constructor
      *
-     * @param dataLoader the data loader service to load graph data
+     * @param dataLoader    the data loader service to load graph data
+     * @param planner       the application properties
+     * @param meterRegistry the registry to publish the plan cache, in flight search and search budget metrics to
+     * @param queryHistory  the query history recording the planned pairs
      */
     @Autowired
-    public DefaultPlannerService(DataLoader dataLoader) throws IOException {
-        this.graph = dataLoader.load();
+    public DefaultPlannerService(DataLoader dataLoader, Planner planner, MeterRegistry meterRegistry,
+                                 QueryHistory queryHistory) throws IOException {
+        this.dataLoader = dataLoader;
+        Graph graph = dataLoader.load();
+        this.snapshot = new AtomicReference<>(new Snapshot(1, graph, createSearchEngine(graph, planner.getSearch())));
+        LOGGER.info("Using {} search algorithm", planner.getSearch().getAlgorithm());
+
+        long maximumRoutes = planner.getCache().getMaximumRoutes();
+        this.planCache = maximumRoutes > 0 ? new PlanCache(maximumRoutes, meterRegistry) : null;
+        LOGGER.info("Plan cache {}", maximumRoutes > 0 ? "holds at most " + maximumRoutes + " routes" : "is disabled");
+        this.inFlightSearches = new InFlightSearches(planner.getCache().getCoalesceWindowMillis(), meterRegistry);
+
+        this.searchCursors = new SearchCursors(planner.getCursor().getMaximumCursors(),
+                planner.getCursor().getTtlSeconds());
+        this.maximumPagedRoutes = planner.getCursor().getMaximumRoutes();
+
+        int parallelism = planner.getSearch().getBatchParallelism() > 0 ? planner.getSearch().getBatchParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.batchPool = new ForkJoinPool(parallelism);
+        LOGGER.info("Batch searches run with parallelism {}", parallelism);
+
+        this.searchProperties = planner.getSearch();
+        this.budgetExhaustions = new EnumMap<>(SearchBudget.Exhaustion.class);
+        for (SearchBudget.Exhaustion exhaustion : SearchBudget.Exhaustion.values()) {
+            budgetExhaustions.put(exhaustion, Counter.builder("planner.search.budget.exhausted")
+                    .description("number of searches stopped early because their budget ran out")
+                    .tag("reason", exhaustion.name().toLowerCase()).register(meterRegistry));
+        }
+        LOGGER.info("Search budget deadline {} ms, maximum expansions {}, maximum frontier {} (0 is unlimited)",
+                searchProperties.getDeadlineMillis(), searchProperties.getMaximumExpansions(),
+                searchProperties.getMaximumFrontier());
+        this.queryHistory = queryHistory;
+    }
+
+    /**
+     * Shutdown the batch pool
+     */
+    @Override
+    public void destroy() {
+        batchPool.shutdown();
     }
 
     /**
      * {@inheritDoc}
+     * the new graph and search engine are built while the current snapshot keeps serving, than the new snapshot is
+     * published and the plan cache and the cursors of the old schedule are dropped. Reloads run one at a time
+     */
+    @Override
+    public synchronized long reload() throws IOException {
+        Graph graph = dataLoader.load();
+        SearchEngine searchEngine = createSearchEngine(graph, searchProperties);
+        Snapshot next = new Snapshot(snapshot.get().version + 1, graph, searchEngine);
+        snapshot.set(next);
+
+        // the entries of the old schedule can't be hit anymore, the version is part of their key
+        if (planCache != null) {
+            planCache.clear();
+        }
+        searchCursors.clear();
+        LOGGER.info("Published schedule version {} with {} airports and {} flights", next.version,
+                graph.getAirportCount(), graph.getFlightCount());
+        return next.version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScheduleVersion() {
+        return snapshot.get().version;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the delta is applied copy on write to the graph of the current snapshot, the search engine is created for the new
+     * graph and an enabled route index only searches the affected pairs again. Cached plans of the other pairs are
+     * moved to the new version, cursors of the old version are rejected. Deltas and reloads run one at a time
+     */
+    @Override
+    public synchronized ScheduleDeltaResult apply(ScheduleDelta delta) {
+        final Snapshot current = snapshot.get();
+        if (delta.isEmpty()) {
+            return ScheduleDeltaResult.builder().version(current.version).affectedAirports(Collections.emptySet())
+                    .build();
+        }
+        ScheduleUpdate update = current.graph.apply(delta);
+        SearchEngine searchEngine = createSearchEngine(update.getGraph(), searchProperties.getAlgorithm());
+        if (current.searchEngine instanceof RouteIndex) {
+            searchEngine = ((RouteIndex) current.searchEngine).update(update, searchEngine,
+                    routeIndexParallelism(searchProperties));
+        }
+        Snapshot next = new Snapshot(current.version + 1, update.getGraph(), searchEngine);
+
+        // plans the delta can't affect are the same for the new version
+        int invalidated = planCache != null ? planCache.advance(current.version, next.version, update::affects) : 0;
+        snapshot.set(next);
+        LOGGER.info("Published schedule version {} with {} added, {} removed and {} retimed flights, {} affected "
+                        + "airports, {} cached plans invalidated", next.version, update.getAdded(), update.getRemoved(),
+                update.getRetimed(), update.getAffectedAirports().size(), invalidated);
+        return ScheduleDeltaResult.builder().version(next.version).added(update.getAdded())
+                .removed(update.getRemoved()).retimed(update.getRetimed())
+                .affectedAirports(update.getAffectedAirports()).invalidatedPlans(invalidated).build();
+    }
+
+    /**
+     * Create the search engine for the configured algorithm
+     * if route index is enabled the engine is wrapped by the index
+     *
+     * @param graph      the graph
+     * @param properties the search properties
+     * @return the search engine
+     */
+    private static SearchEngine createSearchEngine(Graph graph, SearchProperties properties) {
+        SearchEngine engine = createSearchEngine(graph, properties.getAlgorithm());
+        if (properties.getRouteIndexSize() > 0) {
+            engine = RouteIndex.build(graph, engine, properties.getRouteIndexSize(), routeIndexParallelism(properties));
+        }
+        return engine;
+    }
+
+    /**
+     * Resolve the number of threads the route index is built with
+     *
+     * @param properties the search properties
+     * @return the configured parallelism or the number of processors if not configured
+     */
+    private static int routeIndexParallelism(SearchProperties properties) {
+        return properties.getRouteIndexParallelism() > 0 ? properties.getRouteIndexParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Create the search engine for the algorithm
+     *
+     * @param graph     the graph
+     * @param algorithm the algorithm
+     * @return the search engine
+     */
+    private static SearchEngine createSearchEngine(Graph graph, SearchAlgorithm algorithm) {
+        switch (algorithm) {
+            case CSA:
+                return new ConnectionScanEngine(graph);
+            case RAPTOR:
+                return new RaptorEngine(graph);
+            case BFS:
+            default:
+                return graph;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * plans of known airports are served from the plan cache when possible, partial plans are not cached. On a miss
+     * concurrent requests of the same airports share one search unless they override the configured budget
      */
     @Override
     public Plan plan(SearchRequest request) {
-        Airport start = Airports.fromCode(request.getStart());
-        Airport destination = Airports.fromCode(request.getDestination());
+        return plan(request, true);
+    }
+
+    /**
+     * Plan a route using search request
+     *
+     * @param request the search request
+     * @param record  whether to record the request in the query history
+     * @return the actual route plan
+     */
+    private Plan plan(SearchRequest request, boolean record) {
+        final Snapshot snapshot = this.snapshot.get();
+        Airport start = snapshot.graph.getAirport(request.getStart());
+        Airport destination = snapshot.graph.getAirport(request.getDestination());
+        final int k = request.getK();
+
+        if (start == null || destination == null) {
+            return search(snapshot, start, destination, k, budgetOf(request));
+        }
+        if (record) {
+            queryHistory.record(start.getCode(), destination.getCode(), k);
+        }
+        // the resolved airport codes are the normalized key
+        Plan plan = planCache != null
+                ? planCache.get(start.getCode(), destination.getCode(), snapshot.version, k) : null;
+        if (plan != null) {
+            return plan;
+        }
+        if (overridesBudget(request)) {
+            return searchAndCache(snapshot, start, destination, k, budgetOf(request));
+        }
+        return inFlightSearches.search(start.getCode(), destination.getCode(), snapshot.version, k,
+                searchK -> searchAndCache(snapshot, start, destination, searchK, budgetOf(request)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * identical requests of the batch are searched once
+     */
+    @Override
+    public List<BatchPlanItem> planBatch(List<SearchRequest> requests) {
+        return planBatch(requests, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the plans are computed by the batch pool
+     */
+    @Override
+    public List<BatchPlanItem> warmUp(List<SearchRequest> requests) {
+        return planBatch(requests, false);
+    }
+
+    /**
+     * Plan the routes of many search requests in parallel, identical requests are searched once
+     *
+     * @param requests the valid search requests
+     * @param record   whether to record the requests in the query history
+     * @return the result of every request in request order
+     */
+    private List<BatchPlanItem> planBatch(List<SearchRequest> requests, boolean record) {
+        Map<String, CompletableFuture<Plan>> searches = new HashMap<>();
+        List<CompletableFuture<Plan>> futures = new ArrayList<>(requests.size());
+        for (SearchRequest request : requests) {
+            String key = request.getStart() + '|' + request.getDestination() + '|' + request.getK() + '|'
+                    + request.getDeadlineMillis() + '|' + request.getMaximumExpansions() + '|'
+                    + request.getMaximumFrontier();
+            futures.add(searches.computeIfAbsent(key,
+                    ignore -> CompletableFuture.supplyAsync(() -> plan(request, record), batchPool)));
+        }
+
+        List<BatchPlanItem> items = new ArrayList<>(futures.size());
+        for (CompletableFuture<Plan> future : futures) {
+            try {
+                items.add(BatchPlanItem.builder().plan(future.join()).build());
+            } catch (CompletionException ex) {
+                items.add(BatchPlanItem.builder().error(toError(ex.getCause())).build());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * {@inheritDoc}
+     * a cached plan is streamed if there is one, otherwise the routes are streamed while the search engine finds them
+     * and the plan is not cached so memory stays bounded for large k. If the search runs out of its budget the last
+     * event is {@link RouteEvent.Type#PARTIAL}
+     */
+    @Override
+    public void planStream(SearchRequest request, Consumer<RouteEvent> consumer) {
+        final Snapshot snapshot = this.snapshot.get();
+        Airport start = snapshot.graph.getAirport(request.getStart());
+        Airport destination = snapshot.graph.getAirport(request.getDestination());
+        final int k = request.getK();
+        if (start != null && destination != null) {
+            queryHistory.record(start.getCode(), destination.getCode(), k);
+        }
+
+        Plan cached = planCache != null && start != null && destination != null
+                ? planCache.get(start.getCode(), destination.getCode(), snapshot.version, k) : null;
+        List<Route> directFlights = cached != null ? cached.getDirectFlights()
+                : snapshot.graph.getDirectFlights(start, destination);
+        for (Route route : directFlights) {
+            consumer.accept(new RouteEvent(RouteEvent.Type.DIRECT, route));
+        }
+        SearchBudget budget = cached != null ? SearchBudget.unlimited() : budgetOf(request);
+        Iterator<Route> cheapestFlights = cached != null ? cached.getCheapestFlights().iterator()
+                : snapshot.searchEngine.iterateTopKCheapestFlights(start, destination, k, budget);
+        while (cheapestFlights.hasNext()) {
+            consumer.accept(new RouteEvent(RouteEvent.Type.CHEAPEST, cheapestFlights.next()));
+        }
+        if (exhausted(budget)) {
+            consumer.accept(new RouteEvent(RouteEvent.Type.PARTIAL, null));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the search of a paged plan runs for at most the configured maximum paged routes (k is never larger) so that its
+     * pruning stays exact for every page, there is no cursor after that many routes. The first page runs within the
+     * budget of the request and is partial, without a cursor, if it ran out. The next pages are only bounded by the
+     * maximum paged routes as the deadline of the first request would cut every page a client asks for later
+     */
+    @Override
+    public Plan planPage(SearchRequest request) {
+        final Snapshot snapshot = this.snapshot.get();
+        final int k = request.getK();
+        List<Route> directFlights;
+        Iterator<Route> search;
+        SearchBudget budget = null;
+        if (request.getCursor() != null) {
+            directFlights = Collections.emptyList();
+            search = searchCursors.resume(request.getCursor(), snapshot.version);
+            if (search == null) {
+                throw new ClientErrorException(ErrorCodes.CURSOR_INVALID,
+                        "cursor is unknown, expired, already used or of an older schedule");
+            }
+        } else {
+            Airport start = snapshot.graph.getAirport(request.getStart());
+            Airport destination = snapshot.graph.getAirport(request.getDestination());
+            if (start != null && destination != null) {
+                queryHistory.record(start.getCode(), destination.getCode(), k);
+            }
+            directFlights = snapshot.graph.getDirectFlights(start, destination);
+            budget = budgetOf(request);
+            search = snapshot.searchEngine.iterateTopKCheapestFlights(start, destination, maximumPagedRoutes, budget);
+        }
+
+        List<Route> cheapestFlights = new ArrayList<>(k);
+        while (cheapestFlights.size() < k && search.hasNext()) {
+            cheapestFlights.add(search.next());
+        }
+        final boolean more = search.hasNext();
+        final boolean partial = budget != null && exhausted(budget);
+        if (budget != null) {
+            // the next pages are bounded by the maximum paged routes
+            budget.lift();
+        }
+        String cursor = more ? searchCursors.suspend(snapshot.version, search) : null;
+        return Plan.builder().directFlights(directFlights).cheapestFlights(cheapestFlights).cursor(cursor)
+                .partial(partial).build();
+    }
+
+    /**
+     * Translate the cause of a failed batch search to the error of its item
+     *
+     * @param th the cause
+     * @return the error
+     */
+    private static ApiError toError(Throwable th) {
+        if (th instanceof ClientErrorException) {
+            ClientErrorException cee = (ClientErrorException) th;
+            return ApiClientError.builder().code(cee.getCode()).message(cee.getMessage())
+                    .errorDetails(cee.getDetails()).build();
+        }
+        LOGGER.error("batch search failed", th);
+        String code = th instanceof ServiceException ? ((ServiceException) th).getCode() : ErrorCodes.SERVER_ERROR;
+        return ApiError.builder().code(code).message(th.getMessage()).build();
+    }
+
+    /**
+     * Compute the plan from the graph
+     *
+     * @param snapshot    the schedule snapshot
+     * @param start       the start airport or null if unknown
+     * @param destination the destination airport or null if unknown
+     * @param k           the number of cheapest routes
+     * @param budget      the search budget
+     * @return the plan, partial if the budget ran out
+     */
+    private Plan search(Snapshot snapshot, Airport start, Airport destination, int k, SearchBudget budget) {
+        List<Route> directFlights = snapshot.graph.getDirectFlights(start, destination);
+        List<Route> otherFlights = snapshot.searchEngine.topKCheapestFlights(start, destination, k, budget);
+
+        return Plan.builder().directFlights(directFlights).cheapestFlights(otherFlights).partial(exhausted(budget))
+                .build();
+    }
+
+    /**
+     * Compute the plan from the graph and cache it unless it is partial
+     *
+     * @param snapshot    the schedule snapshot
+     * @param start       the start airport
+     * @param destination the destination airport
+     * @param k           the number of cheapest routes
+     * @param budget      the search budget
+     * @return the plan, partial if the budget ran out
+     */
+    private Plan searchAndCache(Snapshot snapshot, Airport start, Airport destination, int k, SearchBudget budget) {
+        Plan plan = search(snapshot, start, destination, k, budget);
+        if (planCache != null && !plan.isPartial()) {
+            planCache.put(start.getCode(), destination.getCode(), snapshot.version, k, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Check if a search request overrides any configured budget limit
+     *
+     * @param request the search request
+     * @return true if the request has its own deadline, maximum expansions or maximum frontier
+     */
+    private static boolean overridesBudget(SearchRequest request) {
+        return request.getDeadlineMillis() != null || request.getMaximumExpansions() != null
+                || request.getMaximumFrontier() != null;
+    }
+
+    /**
+     * Create the budget of a search request starting now
+     * every limit is the configured one unless the request asks for a tighter one
+     *
+     * @param request the search request
+     * @return the budget
+     */
+    private SearchBudget budgetOf(SearchRequest request) {
+        return SearchBudget.of(
+                tighten(searchProperties.getDeadlineMillis(), request.getDeadlineMillis()),
+                (int) tighten(searchProperties.getMaximumExpansions(), request.getMaximumExpansions()),
+                (int) tighten(searchProperties.getMaximumFrontier(), request.getMaximumFrontier()));
+    }
+
+    /**
+     * Tighten a configured limit by a requested one
+     *
+     * @param configured the configured limit, 0 is unlimited
+     * @param requested  the requested limit or null
+     * @return the smaller limit, 0 if both are unlimited
+     */
+    private static long tighten(long configured, Number requested) {
+        if (requested == null) {
+            return configured;
+        }
+        return configured > 0 ? Math.min(configured, requested.longValue()) : requested.longValue();
+    }
+
+    /**
+     * Check if a search ran out of its budget and count it
+     *
+     * @param budget the budget of the finished search
+     * @return true if the budget is exhausted
+     */
+    private boolean exhausted(SearchBudget budget) {
+        if (!budget.isExhausted()) {
+            return false;
+        }
+        budgetExhaustions.get(budget.getExhaustion()).increment();
+        return true;
+    }
+
+    /**
+     * An immutable schedule snapshot
+     */
+    @AllArgsConstructor
+    private static final class Snapshot {
+
+        /**
+         * the schedule version, part of the plan cache, in flight search and cursor keys
+         */
+        private final long version;
 
-        List<Route> directFlights = graph.getDirectFlights(start, destination);
-        List<Route> otherFlights = graph.topKCheapestFlights(start, destination, request.getK());
+        /**
+         * graph object to access traversal api's and the airport and flight registries
+         */
+        private final Graph graph;
 
-        return Plan.builder().directFlights(directFlights).cheapestFlights(otherFlights).build();
+        /**
+         * the engine answering top k cheapest route queries
+         */
+        private final SearchEngine searchEngine;
     }
 }
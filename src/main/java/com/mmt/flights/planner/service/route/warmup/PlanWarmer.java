@@ -0,0 +1,133 @@
+package com.mmt.flights.planner.service.route.warmup;
+
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.service.route.PlannerService;
+import com.mmt.flights.planner.service.route.model.BatchPlanItem;
+import com.mmt.flights.planner.service.route.model.SearchRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms the plan cache up with the most requested pairs of the {@link QueryHistory}
+ * The plans are computed in parallel before the application reports it is ready for traffic, see
+ * {@link com.mmt.flights.planner.startup.ApplicationReadyEventListener}. The warm up duration, the warmed pairs and the
+ * share of the recorded queries they cover are logged and published as {@code planner.warmup.*} metrics
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+public class PlanWarmer {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlanWarmer.class);
+
+    /**
+     * The planner service computing the plans
+     */
+    private final PlannerService plannerService;
+
+    /**
+     * The query history
+     */
+    private final QueryHistory queryHistory;
+
+    /**
+     * Whether the warm up is enabled
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of cheapest routes warmed up per pair
+     */
+    private final int maximumK;
+
+    /**
+     * Duration of the last warm up in millis
+     */
+    private final AtomicLong durationMillis = new AtomicLong();
+
+    /**
+     * Number of pairs warmed up by the last warm up
+     */
+    private final AtomicLong warmedPairs = new AtomicLong();
+
+    /**
+     * Share of the recorded queries covered by the pairs warmed up by the last warm up, in per mille
+     */
+    private final AtomicLong coveragePerMille = new AtomicLong();
+
+    /**
+     * Default constructor
+     *
+     * @param plannerService the planner service computing the plans
+     * @param queryHistory   the query history
+     * @param planner        the application properties
+     * @param meterRegistry  the registry to publish the warm up metrics to
+     */
+    @Autowired
+    public PlanWarmer(PlannerService plannerService, QueryHistory queryHistory, Planner planner,
+                      MeterRegistry meterRegistry) {
+        this.plannerService = plannerService;
+        this.queryHistory = queryHistory;
+        this.enabled = queryHistory.isEnabled() && planner.getWarmup().getTopPairs() > 0
+                && planner.getCache().getMaximumRoutes() > 0;
+        this.maximumK = planner.getWarmup().getMaximumK();
+
+        TimeGauge.builder("planner.warmup.duration", durationMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("duration of the plan cache warm up").register(meterRegistry);
+        Gauge.builder("planner.warmup.pairs", warmedPairs, AtomicLong::get)
+                .description("number of pairs warmed up").register(meterRegistry);
+        Gauge.builder("planner.warmup.coverage", coveragePerMille, value -> value.get() / 1000.0)
+                .description("share of the recorded queries covered by the warmed up pairs").register(meterRegistry);
+    }
+
+    /**
+     * Compute the plans of the most requested pairs into the plan cache
+     * does nothing if the query history, the warm up or the plan cache is disabled
+     */
+    public void warmUp() {
+        if (!enabled) {
+            LOGGER.info("Plan cache warm up is disabled");
+            return;
+        }
+        final long start = System.nanoTime();
+        QueryHistory.Snapshot snapshot = queryHistory.read();
+        List<SearchRequest> requests = new ArrayList<>(snapshot.getPairs().size());
+        for (QueryHistory.Pair pair : snapshot.getPairs()) {
+            SearchRequest request = new SearchRequest();
+            request.setStart(pair.getStart());
+            request.setDestination(pair.getDestination());
+            request.setK(Math.max(1, Math.min(maximumK, pair.getK())));
+            requests.add(request);
+        }
+
+        List<BatchPlanItem> plans = requests.isEmpty() ? new ArrayList<>() : plannerService.warmUp(requests);
+        long warmed = 0;
+        long covered = 0;
+        for (int i = 0; i < plans.size(); i++) {
+            if (plans.get(i).getPlan() != null) {
+                warmed++;
+                covered += snapshot.getPairs().get(i).getCount();
+            }
+        }
+
+        durationMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        warmedPairs.set(warmed);
+        coveragePerMille.set(snapshot.getTotal() > 0 ? covered * 1000 / snapshot.getTotal() : 0);
+        LOGGER.info("Plan cache warmed up with {} of {} pairs in {} ms, covering {}% of {} recorded queries", warmed,
+                requests.size(), durationMillis.get(), coveragePerMille.get() / 10.0, snapshot.getTotal());
+    }
+}
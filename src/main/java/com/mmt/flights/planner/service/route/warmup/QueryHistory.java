@@ -0,0 +1,317 @@
+package com.mmt.flights.planner.service.route.warmup;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.properties.WarmupProperties;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of the planned origin destination pairs of live traffic
+ * The most requested pairs are written to the configured history file periodically and at shutdown, one
+ * {@code start,destination,k,count} line per pair in descending order of count where k is the largest k requested. The
+ * counts start from the file so they keep growing over restarts, see {@link PlanWarmer} for how the file is used
+ * This class is thread safe
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+@Component
+public class QueryHistory implements DisposableBean {
+
+    /**
+     * Private static class level logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryHistory.class);
+
+    /**
+     * Prefix of the header line with the total count of the recorded queries
+     */
+    private static final String TOTAL_HEADER = "# total=";
+
+    /**
+     * The history file or null if disabled
+     */
+    private final Path file;
+
+    /**
+     * Number of pairs kept in the history file
+     */
+    private final int topPairs;
+
+    /**
+     * The counts of every recorded pair
+     */
+    private final ConcurrentMap<Key, Count> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Total count of the recorded queries
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * The scheduler writing the history file or null if it is only written at shutdown
+     */
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Default constructor
+     *
+     * @param planner the application properties
+     */
+    @Autowired
+    public QueryHistory(Planner planner) {
+        WarmupProperties properties = planner.getWarmup();
+        this.file = StringUtils.isNotBlank(properties.getHistoryFile()) ? Paths.get(properties.getHistoryFile()) : null;
+        this.topPairs = properties.getTopPairs();
+        if (file == null) {
+            this.writer = null;
+            LOGGER.info("Query history is disabled");
+            return;
+        }
+
+        Snapshot snapshot = read();
+        for (Pair pair : snapshot.getPairs()) {
+            record(pair.getStart(), pair.getDestination(), pair.getK(), pair.getCount());
+        }
+        // the total is kept even if not all the pairs are in the file
+        total.add(Math.max(0, snapshot.getTotal() - total.sum()));
+
+        if (properties.getWriteIntervalSeconds() > 0) {
+            this.writer = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("planner-query-history").setDaemon(true).build());
+            writer.scheduleWithFixedDelay(this::write, properties.getWriteIntervalSeconds(),
+                    properties.getWriteIntervalSeconds(), TimeUnit.SECONDS);
+        } else {
+            this.writer = null;
+        }
+        LOGGER.info("Query history file {} has {} pairs of {} queries", file, snapshot.getPairs().size(),
+                snapshot.getTotal());
+    }
+
+    /**
+     * Check if the query history is enabled
+     *
+     * @return true if there is a history file
+     */
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Record a planned pair
+     *
+     * @param start       the start airport code
+     * @param destination the destination airport code
+     * @param k           the requested number of cheapest routes
+     */
+    public void record(String start, String destination, int k) {
+        if (file != null) {
+            record(start, destination, k, 1);
+        }
+    }
+
+    /**
+     * Add to the count of a pair
+     *
+     * @param start       the start airport code
+     * @param destination the destination airport code
+     * @param k           the requested number of cheapest routes
+     * @param count       the count to add
+     */
+    private void record(String start, String destination, int k, long count) {
+        Count current = counts.computeIfAbsent(new Key(start, destination), ignore -> new Count());
+        current.count.add(count);
+        current.k.accumulateAndGet(k, Math::max);
+        total.add(count);
+    }
+
+    /**
+     * Read the history file
+     *
+     * @return the pairs of the file in descending order of count, empty if disabled or there is no file yet
+     */
+    public Snapshot read() {
+        if (file == null || !Files.exists(file)) {
+            return new Snapshot(Collections.emptyList(), 0);
+        }
+        List<Pair> pairs = new ArrayList<>();
+        long recorded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith(TOTAL_HEADER)) {
+                    recorded = Long.parseLong(line.substring(TOTAL_HEADER.length()).trim());
+                } else if (!line.isEmpty() && !line.startsWith("#")) {
+                    String[] fields = line.split(",");
+                    if (fields.length != 4) {
+                        LOGGER.warn("skipping invalid query history line [{}]", line);
+                        continue;
+                    }
+                    pairs.add(new Pair(fields[0].trim(), fields[1].trim(), Integer.parseInt(fields[2].trim()),
+                            Long.parseLong(fields[3].trim())));
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            LOGGER.error("error reading query history file {}", file, ex);
+            return new Snapshot(Collections.emptyList(), 0);
+        }
+        pairs.sort(Comparator.comparingLong(Pair::getCount).reversed());
+        long sum = pairs.stream().mapToLong(Pair::getCount).sum();
+        return new Snapshot(pairs.size() > topPairs ? pairs.subList(0, topPairs) : pairs, Math.max(recorded, sum));
+    }
+
+    /**
+     * Write the most requested pairs to the history file
+     * the file is replaced atomically so a reader never sees a partial file
+     */
+    public synchronized void write() {
+        if (file == null) {
+            return;
+        }
+        List<Pair> pairs = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> pairs.add(new Pair(key.start, key.destination, count.k.get(),
+                count.count.sum())));
+        pairs.sort(Comparator.comparingLong(Pair::getCount).reversed());
+
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                writer.write(TOTAL_HEADER + total.sum());
+                writer.newLine();
+                writer.write("# start,destination,k,count");
+                writer.newLine();
+                for (Pair pair : pairs.subList(0, Math.min(topPairs, pairs.size()))) {
+                    writer.write(pair.getStart() + ',' + pair.getDestination() + ',' + pair.getK() + ','
+                            + pair.getCount());
+                    writer.newLine();
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("wrote {} pairs to query history file {}", Math.min(topPairs, pairs.size()), file);
+        } catch (IOException ex) {
+            LOGGER.error("error writing query history file {}", file, ex);
+        }
+    }
+
+    /**
+     * Stop the periodic writes and write the history file one last time
+     */
+    @Override
+    public void destroy() {
+        if (writer != null) {
+            writer.shutdownNow();
+        }
+        write();
+    }
+
+    /**
+     * The pairs of the history file
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Snapshot {
+
+        /**
+         * the pairs in descending order of count
+         */
+        private final List<Pair> pairs;
+
+        /**
+         * the total count of the recorded queries, including the pairs not in the file
+         */
+        private final long total;
+    }
+
+    /**
+     * A recorded pair
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Pair {
+
+        /**
+         * the start airport code
+         */
+        private final String start;
+
+        /**
+         * the destination airport code
+         */
+        private final String destination;
+
+        /**
+         * the largest requested number of cheapest routes
+         */
+        private final int k;
+
+        /**
+         * the number of queries
+         */
+        private final long count;
+    }
+
+    /**
+     * The pair key
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Key {
+
+        /**
+         * the start airport code
+         */
+        private final String start;
+
+        /**
+         * the destination airport code
+         */
+        private final String destination;
+    }
+
+    /**
+     * The count of a pair
+     */
+    private static final class Count {
+
+        /**
+         * the number of queries
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * the largest requested number of cheapest routes
+         */
+        private final AtomicInteger k = new AtomicInteger();
+    }
+}
@@ -1,5 +1,6 @@
 package com.mmt.flights.planner.startup;
 
+import com.mmt.flights.planner.service.route.warmup.PlanWarmer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -22,13 +23,20 @@ public class ApplicationReadyEventListener implements ApplicationListener<Applic
 
     /**
      * Called when {@link ApplicationReadyEvent} event is fired
-     * We don't do anything here, just simply log but custom functionality can be added here
-     * make sure not to add any long running jobs here because this function is called in main method
+     * The plan cache is warmed up here, spring reports the readiness state (accepting traffic) only after every ready
+     * event listener returned so the warm up is done before readiness. The warm up is bounded by the configured top
+     * pairs, make sure not to add any other long running jobs here because this function is called in main method
      *
      * @param event the application event that was fired
      */
     @Override
     public void onApplicationEvent(ApplicationReadyEvent event) {
-        LOGGER.info("received application ready event, application is ready to serve requests");
+        LOGGER.info("received application ready event, warming the plan cache up");
+        try {
+            event.getApplicationContext().getBean(PlanWarmer.class).warmUp();
+        } catch (RuntimeException ex) {
+            LOGGER.error("plan cache warm up failed, serving with a cold cache", ex);
+        }
+        LOGGER.info("application is ready to serve requests");
     }
 }
\ No newline at end of file
@@ -6,6 +6,16 @@ import java.time.format.DateTimeFormatter;
 
 public final class TimeUtil {
 
+    /**
+     * Number of minutes in a day
+     */
+    public static final int MINS_IN_DAY = 1440;
+
+    /**
+     * The 24 hour HHmm formatter, formatters are immutable and thread safe so a single instance is shared
+     */
+    private static final DateTimeFormatter HOUR_MINUTE_FORMATTER = DateTimeFormatter.ofPattern("HHmm");
+
     /**
      * We don't want anyone to instantiate this class
      */
@@ -20,9 +30,9 @@ public final class TimeUtil {
      * @return the new time
      */
     public static String addMins24HourFormat(String time24Hour, int minsToAdd) {
-        LocalTime first = LocalTime.parse(time24Hour, DateTimeFormatter.ofPattern("HHmm"));
+        LocalTime first = LocalTime.parse(time24Hour, HOUR_MINUTE_FORMATTER);
         LocalTime added = first.plusMinutes(minsToAdd);
-        return added.format(DateTimeFormatter.ofPattern("HHmm"));
+        return added.format(HOUR_MINUTE_FORMATTER);
     }
 
     /**
@@ -46,9 +56,7 @@ public final class TimeUtil {
      * @return the difference in mins
      */
     public static int differenceInMins(String a, String b) {
-        LocalTime first = LocalTime.parse(a, DateTimeFormatter.ofPattern("HHmm"));
-        LocalTime second = LocalTime.parse(b, DateTimeFormatter.ofPattern("HHmm"));
-        return differenceInMins(first, second);
+        return differenceInMins(toMinuteOfDay(a), toMinuteOfDay(b));
     }
 
     /**
@@ -67,4 +75,59 @@ public final class TimeUtil {
 
         return (int) diff;
     }
+
+    /**
+     * Convert a HHmm 24 hour time to minute of the day. for ex: 0130 is 90
+     *
+     * @param time24Hour the time in HHmm format
+     * @return the minute of the day in range [0, 1440)
+     * @throws IllegalArgumentException if time is not a valid HHmm time
+     */
+    public static int toMinuteOfDay(String time24Hour) {
+        if (time24Hour == null || time24Hour.length() != 4) {
+            throw new IllegalArgumentException(String.format("time [%s] should be in HHmm format", time24Hour));
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = time24Hour.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException(String.format("time [%s] should be in HHmm format", time24Hour));
+            }
+            value = value * 10 + (c - '0');
+        }
+        int hours = value / 100;
+        int mins = value % 100;
+        if (hours > 23 || mins > 59) {
+            throw new IllegalArgumentException(String.format("time [%s] is not a valid 24 hour time", time24Hour));
+        }
+        return hours * 60 + mins;
+    }
+
+    /**
+     * Difference in mins between two minute of day values
+     * If second is less than first we wrap around midnight
+     *
+     * @param first  the first minute of day
+     * @param second the second minute of day
+     * @return difference in mins in range [0, 1440)
+     */
+    public static int differenceInMins(int first, int second) {
+        return Math.floorMod(second - first, MINS_IN_DAY);
+    }
+
+    /**
+     * Calculate the layover in mins between landing and the next departure
+     * the next departure can be caught on the same day only if it leaves at least minimumLayover mins after landing
+     * otherwise the person has to wait for the next day's departure
+     * For ex: with 120 mins minimum, landing at 1300 and departing at 1600 is 180 mins,
+     * landing at 1300 and departing at 1400 is 1500 mins
+     *
+     * @param arrival        the landing minute of day
+     * @param departure      the next departure minute of day
+     * @param minimumLayover the minimum layover in mins
+     * @return the layover in mins in range [minimumLayover, minimumLayover + 1440)
+     */
+    public static int layoverInMins(int arrival, int departure, int minimumLayover) {
+        return minimumLayover + Math.floorMod(departure - arrival - minimumLayover, MINS_IN_DAY);
+    }
 }
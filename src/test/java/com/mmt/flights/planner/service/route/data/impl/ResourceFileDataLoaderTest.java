@@ -0,0 +1,243 @@
+package com.mmt.flights.planner.service.route.data.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mmt.flights.planner.properties.ScheduleProperties;
+import com.mmt.flights.planner.service.route.planning.graph.Airport;
+import com.mmt.flights.planner.service.route.planning.graph.Graph;
+import com.mmt.flights.planner.service.route.planning.graph.TestSchedules;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The {@link ResourceFileDataLoader} builds the same graph whatever form the schedule files take
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class ResourceFileDataLoaderTest {
+
+    /**
+     * the number of cheapest routes compared
+     */
+    private static final int K = 5;
+
+    /**
+     * the json mapper
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * the records of the bundled schedule in file order
+     */
+    private static List<Map<String, Object>> records;
+
+    /**
+     * Read the records of the bundled schedule
+     *
+     * @throws IOException if the bundled schedule can't be read
+     */
+    @BeforeAll
+    static void read() throws IOException {
+        try (InputStream inputStream = new ClassPathResource("/data/ivtest-sched.json").getInputStream()) {
+            records = MAPPER.readValue(inputStream, new TypeReference<List<Map<String, Object>>>() {
+            });
+        }
+    }
+
+    /**
+     * A gzip compressed schedule file loads as the bundled one
+     *
+     * @param directory the directory of the schedule file
+     * @throws IOException if the file can't be written or loaded
+     */
+    @Test
+    void gzipScheduleLoadsAsBundled(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("schedule.json.gz");
+        write(file, records, true);
+
+        assertSameGraph(TestSchedules.bundled(), load(file.toString(), 0));
+    }
+
+    /**
+     * Unknown fields of a record, at any depth, are skipped by the streaming parser
+     *
+     * @param directory the directory of the schedule file
+     * @throws IOException if the file can't be written or loaded
+     */
+    @Test
+    void unknownFieldsAreSkipped(@TempDir Path directory) throws IOException {
+        List<Map<String, Object>> extended = new ArrayList<>();
+        for (Map<String, Object> record : records) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            copy.put("aircraft", Map.of("type", "A320", "seats", List.of(180, 12)));
+            copy.putAll(record);
+            copy.put("remarks", List.of());
+            extended.add(copy);
+        }
+        Path file = directory.resolve("schedule.json");
+        write(file, extended, false);
+
+        assertSameGraph(TestSchedules.bundled(), load(file.toString(), 0));
+    }
+
+    /**
+     * A record with an unknown airport or a file which is not an array of records fails the load
+     *
+     * @param directory the directory of the schedule file
+     * @throws IOException if the file can't be written
+     */
+    @Test
+    void invalidScheduleIsRejected(@TempDir Path directory) throws IOException {
+        List<Map<String, Object>> invalid = new ArrayList<>(records);
+        Map<String, Object> record = new LinkedHashMap<>(records.get(0));
+        record.put("to", "XXX");
+        invalid.add(record);
+        Path file = directory.resolve("invalid.json");
+        write(file, invalid, false);
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> load(file.toString(), 0));
+        assertTrue(ex.getMessage().contains("XXX") || ex.getMessage().contains("airport"), ex.getMessage());
+
+        Path object = directory.resolve("object.json");
+        Files.write(object, "{\"code\": 1}".getBytes());
+        assertThrows(IllegalStateException.class, () -> load(object.toString(), 0));
+    }
+
+    /**
+     * A schedule split over plain and gzip compressed files of a directory loads as the bundled one, the files are
+     * parsed in parallel and merged in name order
+     *
+     * @param directory the directory of the schedule files
+     * @throws IOException if the files can't be written or loaded
+     */
+    @Test
+    void directoryLoadsAsBundled(@TempDir Path directory) throws IOException {
+        split(directory, 3);
+        Files.write(directory.resolve("readme.txt"), "not a schedule".getBytes());
+
+        assertSameGraph(TestSchedules.bundled(), load(directory.toString(), 2));
+        assertSameGraph(TestSchedules.bundled(), load(directory.toString(), 1));
+    }
+
+    /**
+     * A glob only loads the matching files
+     *
+     * @param directory the directory of the schedule files
+     * @throws IOException if the files can't be written or loaded
+     */
+    @Test
+    void globLoadsMatchingFiles(@TempDir Path directory) throws IOException {
+        List<List<Map<String, Object>>> parts = split(directory, 3);
+
+        Graph graph = load(directory.resolve("part-*.json").toString(), 2);
+        assertEquals(parts.get(0).size() + parts.get(2).size(), graph.getFlightCount());
+    }
+
+    /**
+     * A directory without schedule files fails the load, as does an invalid record in one of the files
+     *
+     * @param directory the directory of the schedule files
+     * @throws IOException if the files can't be written
+     */
+    @Test
+    void missingOrInvalidFilesAreRejected(@TempDir Path directory) throws IOException {
+        assertThrows(IllegalStateException.class, () -> load(directory.toString(), 2));
+
+        split(directory, 3);
+        Map<String, Object> record = new LinkedHashMap<>(records.get(0));
+        record.put("from", "XXX");
+        write(directory.resolve("part-3.json"), List.of(record), false);
+        assertThrows(IllegalStateException.class, () -> load(directory.toString(), 2));
+    }
+
+    /**
+     * Split the bundled records over files part-0.json, part-1.json.gz, part-2.json and so on
+     *
+     * @param directory the directory of the files
+     * @param count     the number of files
+     * @return the records of every file
+     * @throws IOException if a file can't be written
+     */
+    private static List<List<Map<String, Object>>> split(Path directory, int count) throws IOException {
+        List<List<Map<String, Object>>> parts = new ArrayList<>();
+        int size = (records.size() + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            List<Map<String, Object>> part = records.subList(i * size, Math.min(records.size(), (i + 1) * size));
+            boolean gzip = i % 2 == 1;
+            write(directory.resolve("part-" + i + (gzip ? ".json.gz" : ".json")), part, gzip);
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    /**
+     * Load the given schedule with the bundled airports
+     *
+     * @param scheduleFile the schedule location
+     * @param loadThreads  the threads loading several files, 0 for all processors
+     * @return the graph
+     * @throws IOException if the schedule can't be loaded
+     */
+    private static Graph load(String scheduleFile, int loadThreads) throws IOException {
+        ScheduleProperties properties = new ScheduleProperties();
+        properties.setScheduleFile(scheduleFile);
+        properties.setLoadThreads(loadThreads);
+        return TestSchedules.loader(properties).load();
+    }
+
+    /**
+     * Write schedule records as a json array
+     *
+     * @param file    the file
+     * @param records the records
+     * @param gzip    whether to compress the file
+     * @throws IOException if the file can't be written
+     */
+    private static void write(Path file, List<Map<String, Object>> records, boolean gzip) throws IOException {
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(Files.newOutputStream(file))
+                : Files.newOutputStream(file)) {
+            MAPPER.writeValue(outputStream, records);
+        }
+    }
+
+    /**
+     * Check two graphs have the same flights and answer the same routes on every pair of airports with flights
+     *
+     * @param expected the expected graph
+     * @param actual   the loaded graph
+     */
+    private static void assertSameGraph(Graph expected, Graph actual) {
+        assertEquals(expected.getAirportCount(), actual.getAirportCount());
+        assertEquals(expected.getFlightCount(), actual.getFlightCount());
+        List<Airport> airports = TestSchedules.airportsWithFlights(expected);
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                Airport loadedStart = actual.getAirport(start.getCode());
+                Airport loadedDestination = actual.getAirport(destination.getCode());
+                String pair = start.getCode() + "-" + destination.getCode();
+                assertEquals(TestSchedules.signatures(expected.getDirectFlights(start, destination)),
+                        TestSchedules.signatures(actual.getDirectFlights(loadedStart, loadedDestination)), pair);
+                assertEquals(TestSchedules.signatures(expected.topKCheapestFlights(start, destination, K)),
+                        TestSchedules.signatures(actual.topKCheapestFlights(loadedStart, loadedDestination, K)),
+                        pair);
+            }
+        }
+    }
+}
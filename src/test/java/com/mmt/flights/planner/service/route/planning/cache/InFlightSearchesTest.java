@@ -0,0 +1,65 @@
+package com.mmt.flights.planner.service.route.planning.cache;
+
+import com.mmt.flights.planner.service.route.model.Plan;
+import com.mmt.flights.planner.service.route.planning.graph.Route;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link InFlightSearches}
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class InFlightSearchesTest {
+
+    /**
+     * Concurrent callers with different k arriving within the admission window share one search for the largest k
+     */
+    @Test
+    void concurrentCallersWithDifferentKShareOneSearch() throws Exception {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final InFlightSearches inFlightSearches = new InFlightSearches(TimeUnit.SECONDS.toMillis(2), registry);
+        final List<Integer> searched = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch leading = new CountDownLatch(1);
+        final IntFunction<Plan> search = k -> {
+            searched.add(k);
+            return Plan.builder().directFlights(Collections.emptyList())
+                    .cheapestFlights(Collections.<Route>nCopies(k, null)).build();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Plan> small = executor.submit(() -> {
+                leading.countDown();
+                return inFlightSearches.search("DEL", "BOM", 1L, 3, search);
+            });
+            leading.await();
+            // let the first caller register its search before the second one arrives
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (registry.get("planner.plan.inflight.size").gauge().value() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Future<Plan> large = executor.submit(() -> inFlightSearches.search("DEL", "BOM", 1L, 10, search));
+
+            assertEquals(3, small.get(10, TimeUnit.SECONDS).getCheapestFlights().size());
+            assertEquals(10, large.get(10, TimeUnit.SECONDS).getCheapestFlights().size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singletonList(10), searched);
+        assertEquals(1.0, registry.get("planner.plan.inflight.coalesced").counter().count());
+    }
+}
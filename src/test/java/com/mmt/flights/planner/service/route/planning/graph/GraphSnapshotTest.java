@@ -0,0 +1,158 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A graph read from a {@link GraphSnapshot} is the graph it was written from
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class GraphSnapshotTest {
+
+    /**
+     * the number of cheapest routes compared
+     */
+    private static final int K = 10;
+
+    /**
+     * the source stamp the snapshots are written with
+     */
+    private static final long SOURCE = 42L;
+
+    /**
+     * The snapshot keeps every airport and flight and the read graph answers the same routes on every pair
+     *
+     * @param directory the directory of the snapshot
+     * @throws IOException if the snapshot can't be written or read
+     */
+    @Test
+    void roundTrip(@TempDir Path directory) throws IOException {
+        final Graph graph = TestSchedules.bundled();
+        final Path file = directory.resolve("graph.snapshot");
+        assertEquals(GraphSnapshot.write(graph, SOURCE, file), Files.size(file));
+
+        final Graph read = GraphSnapshot.read(file, SOURCE);
+        assertEquals(graph.getAirportCount(), read.getAirportCount());
+        assertEquals(graph.getFlightCount(), read.getFlightCount());
+        for (int i = 0; i < graph.getAirportCount(); i++) {
+            assertEquals(graph.getAirports()[i].getCode(), read.getAirports()[i].getCode());
+            assertEquals(graph.getAirports()[i].getCountry(), read.getAirports()[i].getCountry());
+        }
+        for (int i = 0; i < graph.getFlightCount(); i++) {
+            Flight expected = graph.getFlights()[i];
+            Flight actual = read.getFlights()[i];
+            assertEquals(expected.getCode(), actual.getCode());
+            assertEquals(expected.getDeparture(), actual.getDeparture());
+            assertEquals(expected.getArrival(), actual.getArrival());
+            assertEquals(expected.getDepartureAirport().getCode(), actual.getDepartureAirport().getCode());
+            assertEquals(expected.getArrivalAirport().getCode(), actual.getArrivalAirport().getCode());
+        }
+        assertSameRoutes(graph, read, TestSchedules::signatures);
+    }
+
+    /**
+     * The flights a delta removed are left out and the read graph still answers like the patched one, routes of equal
+     * cost may come in another order as the ids of the flights are compacted
+     *
+     * @param directory the directory of the snapshot
+     * @throws IOException if the snapshot can't be written or read
+     */
+    @Test
+    void roundTripOfPatchedGraph(@TempDir Path directory) throws IOException {
+        final Graph graph = TestSchedules.bundled();
+        final Flight removed = graph.getFlights()[0];
+        final Graph patched = graph.apply(new ScheduleDelta().remove(removed.getCode(), null, null)).getGraph();
+        final Path file = directory.resolve("graph.snapshot");
+        GraphSnapshot.write(patched, SOURCE, file);
+
+        final Graph read = GraphSnapshot.read(file, SOURCE);
+        assertEquals(patched.getFlightCount(), read.getFlightCount());
+        assertNull(read.getFlight(removed.getCode()));
+        assertSameRoutes(patched, read, TestSchedules::costs);
+    }
+
+    /**
+     * A snapshot of other schedule files is not read
+     *
+     * @param directory the directory of the snapshot
+     * @throws IOException if the snapshot can't be written
+     */
+    @Test
+    void staleSourceIsRejected(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("graph.snapshot");
+        GraphSnapshot.write(TestSchedules.bundled(), SOURCE, file);
+
+        IOException ex = assertThrows(IOException.class, () -> GraphSnapshot.read(file, SOURCE + 1));
+        assertTrue(ex.getMessage().contains("other schedule files"), ex.getMessage());
+    }
+
+    /**
+     * A snapshot with a changed payload byte is not read
+     *
+     * @param directory the directory of the snapshot
+     * @throws IOException if the snapshot can't be written or changed
+     */
+    @Test
+    void corruptPayloadIsRejected(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("graph.snapshot");
+        GraphSnapshot.write(TestSchedules.bundled(), SOURCE, file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        IOException ex = assertThrows(IOException.class, () -> GraphSnapshot.read(file, SOURCE));
+        assertTrue(ex.getMessage().contains("checksum"), ex.getMessage());
+    }
+
+    /**
+     * A truncated snapshot is not read
+     *
+     * @param directory the directory of the snapshot
+     * @throws IOException if the snapshot can't be written or changed
+     */
+    @Test
+    void truncatedSnapshotIsRejected(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("graph.snapshot");
+        GraphSnapshot.write(TestSchedules.bundled(), SOURCE, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file, SOURCE));
+    }
+
+    /**
+     * Check two graphs answer the same routes on every pair of airports with flights
+     *
+     * @param expected the original graph
+     * @param actual   the read graph
+     * @param compared what is compared of the routes
+     */
+    private static void assertSameRoutes(Graph expected, Graph actual, Function<List<Route>, List<?>> compared) {
+        List<Airport> airports = TestSchedules.airportsWithFlights(expected);
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                Airport readStart = actual.getAirport(start.getCode());
+                Airport readDestination = actual.getAirport(destination.getCode());
+                String pair = start.getCode() + "-" + destination.getCode();
+                assertEquals(TestSchedules.signatures(expected.getDirectFlights(start, destination)),
+                        TestSchedules.signatures(actual.getDirectFlights(readStart, readDestination)), pair);
+                assertEquals(compared.apply(expected.topKCheapestFlights(start, destination, K)),
+                        compared.apply(actual.topKCheapestFlights(readStart, readDestination, K)), pair);
+            }
+        }
+    }
+}
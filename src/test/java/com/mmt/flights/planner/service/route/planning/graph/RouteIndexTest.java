@@ -0,0 +1,80 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The {@link RouteIndex} answers like the live search it was built from
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class RouteIndexTest {
+
+    /**
+     * the number of routes stored per pair
+     */
+    private static final int SIZE = 5;
+
+    /**
+     * Stored and fallback answers cost the same as the live search answers on every pair, for k below, at and above
+     * the size. Routes of equal cost may come in another order as the live search breaks ties depending on k
+     */
+    @Test
+    void indexMatchesLiveSearch() {
+        final Graph graph = TestSchedules.bundled();
+        final RouteIndex index = RouteIndex.build(graph, graph, SIZE, 2);
+        final List<Airport> airports = TestSchedules.airportsWithFlights(graph);
+        for (int k : new int[]{1, SIZE, 2 * SIZE + 1}) {
+            for (Airport start : airports) {
+                for (Airport destination : airports) {
+                    assertEquals(TestSchedules.costs(graph.topKCheapestFlights(start, destination, k)),
+                            TestSchedules.costs(index.topKCheapestFlights(start, destination, k)),
+                            start.getCode() + "-" + destination.getCode() + " k=" + k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Only a query for more routes than stored of a pair with all its stored routes goes to the live search
+     */
+    @Test
+    void fallsBackOnlyWhenMoreRoutesMayExist() {
+        final Graph graph = TestSchedules.bundled();
+        final AtomicInteger searches = new AtomicInteger();
+        final SearchEngine counting = (start, destination, k) -> {
+            searches.incrementAndGet();
+            return graph.topKCheapestFlights(start, destination, k);
+        };
+        final RouteIndex index = RouteIndex.build(graph, counting, SIZE, 1);
+        final List<Airport> airports = TestSchedules.airportsWithFlights(graph);
+
+        int full = 0;
+        int fewer = 0;
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                int stored = graph.topKCheapestFlights(start, destination, SIZE).size();
+                searches.set(0);
+                List<Route> routes = index.topKCheapestFlights(start, destination, SIZE + 1);
+                if (stored == SIZE) {
+                    full++;
+                    assertEquals(1, searches.get(), start.getCode() + "-" + destination.getCode());
+                } else {
+                    fewer++;
+                    assertEquals(0, searches.get(), start.getCode() + "-" + destination.getCode());
+                    assertEquals(stored, routes.size());
+                }
+                searches.set(0);
+                index.topKCheapestFlights(start, destination, SIZE);
+                assertEquals(0, searches.get());
+            }
+        }
+        assertTrue(full > 0 && fewer > 0, "the schedule has pairs with and without more routes than stored");
+    }
+}
@@ -0,0 +1,168 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.mmt.flights.planner.util.TimeUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A graph patched by {@link Graph#apply(ScheduleDelta)} answers like a graph built from the changed schedule
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class ScheduleDeltaTest {
+
+    /**
+     * the number of cheapest routes compared
+     */
+    private static final int K = 10;
+
+    /**
+     * the bundled schedule
+     */
+    private static Graph graph;
+
+    /**
+     * the flight removed by the delta
+     */
+    private static Flight removed;
+
+    /**
+     * the flight retimed by the delta
+     */
+    private static Flight retimed;
+
+    /**
+     * the delta, removing a flight out of DEL, retiming one out of BOM and adding one from BOM to DEL
+     */
+    private static ScheduleDelta delta;
+
+    /**
+     * Pick the changed flights, the first flights with a code of their own out of DEL and BOM
+     */
+    @BeforeAll
+    static void load() {
+        graph = TestSchedules.bundled();
+        Map<String, Integer> legs = new HashMap<>();
+        for (Flight flight : graph.getFlights()) {
+            legs.merge(flight.getCode(), 1, Integer::sum);
+        }
+        for (Flight flight : graph.getFlights()) {
+            if (legs.get(flight.getCode()) == 1) {
+                String from = flight.getDepartureAirport().getCode();
+                if (removed == null && from.equals("DEL")) {
+                    removed = flight;
+                } else if (retimed == null && from.equals("BOM")) {
+                    retimed = flight;
+                }
+            }
+        }
+        delta = new ScheduleDelta()
+                .remove(removed.getCode(), null, null)
+                .retime(retimed.getCode(), null, null, shift(retimed.getDeparture()), shift(retimed.getArrival()))
+                .add("TEST1", "BOM", "DEL", "0615", "0820");
+    }
+
+    /**
+     * Every pair of airports has the same routes on the patched graph as on the rebuilt one
+     */
+    @Test
+    void patchedGraphMatchesRebuiltGraph() {
+        final ScheduleUpdate update = graph.apply(delta);
+        final Graph patched = update.getGraph();
+        final Graph rebuilt = rebuild();
+
+        assertEquals(rebuilt.getFlightCount(), patched.getFlightCount());
+        assertNull(patched.getFlight(removed.getCode()));
+        assertNotNull(patched.getFlight("TEST1"));
+        assertEquals(1, update.getAdded());
+        assertEquals(1, update.getRemoved());
+        assertEquals(1, update.getRetimed());
+        for (Airport start : TestSchedules.airportsWithFlights(rebuilt)) {
+            for (Airport destination : TestSchedules.airportsWithFlights(rebuilt)) {
+                String pair = start.getCode() + "-" + destination.getCode();
+                assertEquals(TestSchedules.signatures(rebuilt.getDirectFlights(start, destination)),
+                        TestSchedules.signatures(patched.getDirectFlights(start, destination)), pair);
+                assertEquals(TestSchedules.costs(rebuilt.topKCheapestFlights(start, destination, K)),
+                        TestSchedules.costs(patched.topKCheapestFlights(start, destination, K)), pair);
+            }
+        }
+    }
+
+    /**
+     * The pairs the update does not affect keep their routes, every changed pair is affected and the original graph
+     * is left as it was
+     */
+    @Test
+    void unaffectedPairsAndOriginalGraphAreUnchanged() {
+        final List<Airport> airports = TestSchedules.airportsWithFlights(graph);
+        final Map<String, List<Integer>> before = new HashMap<>();
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                before.put(start.getCode() + "-" + destination.getCode(),
+                        TestSchedules.costs(graph.topKCheapestFlights(start, destination, K)));
+            }
+        }
+
+        final ScheduleUpdate update = graph.apply(delta);
+        int changed = 0;
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                String pair = start.getCode() + "-" + destination.getCode();
+                assertEquals(before.get(pair), TestSchedules.costs(graph.topKCheapestFlights(start, destination, K)),
+                        pair);
+                List<Integer> after = TestSchedules.costs(update.getGraph().topKCheapestFlights(start, destination, K));
+                if (!after.equals(before.get(pair))) {
+                    changed++;
+                    assertTrue(update.affects(start.getCode(), destination.getCode()), pair);
+                }
+            }
+        }
+        assertTrue(changed > 0, "the delta changes some routes");
+    }
+
+    /**
+     * Build the changed schedule from scratch
+     *
+     * @return the graph
+     */
+    private static Graph rebuild() {
+        GraphBuilder builder = new GraphBuilder();
+        for (Airport airport : graph.getAirports()) {
+            builder.addNode(airport);
+        }
+        List<Flight> flights = new ArrayList<>();
+        for (Flight flight : graph.getFlights()) {
+            if (flight == removed) {
+                continue;
+            }
+            flights.add(flight != retimed ? flight : Flight.fromCode(flight.getCode(), shift(flight.getDeparture()),
+                    shift(flight.getArrival()), flight.getDepartureAirport(), flight.getArrivalAirport()));
+        }
+        flights.add(Flight.fromCode("TEST1", "0615", "0820", graph.getAirport("BOM"), graph.getAirport("DEL")));
+        for (Flight flight : flights) {
+            builder.addEdge(flight.getDepartureAirport(), flight.getArrivalAirport(), flight);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Shift a time by an hour and a half
+     *
+     * @param time the time in HHMM format
+     * @return the shifted time in HHMM format
+     */
+    private static String shift(String time) {
+        return TimeUtil.addMins24HourFormat(time, 90);
+    }
+}
@@ -0,0 +1,48 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every {@link SearchEngine} stops when its {@link SearchBudget} runs out
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class SearchBudgetTest {
+
+    /**
+     * the number of cheapest routes searched
+     */
+    private static final int K = 10;
+
+    /**
+     * A search with a tiny expansion budget stops early and flags the budget, an unlimited one finds every route
+     */
+    @Test
+    void everyEngineHonoursTheExpansionBudget() {
+        final Graph graph = TestSchedules.bundled();
+        final Airport start = graph.getAirport("DEL");
+        final Airport destination = graph.getAirport("BOM");
+        final List<SearchEngine> engines = Arrays.asList(graph, new ConnectionScanEngine(graph),
+                new RaptorEngine(graph));
+        for (SearchEngine engine : engines) {
+            SearchBudget unlimited = SearchBudget.of(0, 0, 0);
+            assertEquals(K, engine.topKCheapestFlights(start, destination, K, unlimited).size(),
+                    engine.getClass().getSimpleName());
+            assertFalse(unlimited.isExhausted());
+
+            SearchBudget budget = SearchBudget.of(0, 1, 0);
+            List<Route> routes = engine.topKCheapestFlights(start, destination, K, budget);
+            assertTrue(budget.isExhausted(), engine.getClass().getSimpleName());
+            assertEquals(SearchBudget.Exhaustion.EXPANSIONS, budget.getExhaustion());
+            assertTrue(routes.size() < K, engine.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every {@link SearchEngine} answers the same top k costs as an exhaustive enumeration on the bundled schedule
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+class SearchEngineEquivalenceTest {
+
+    /**
+     * the number of cheapest routes compared
+     */
+    private static final int K = 10;
+
+    /**
+     * the bundled schedule
+     */
+    private static Graph graph;
+
+    /**
+     * the airports with flights
+     */
+    private static List<Airport> airports;
+
+    /**
+     * the exhaustive answer of every start and destination
+     */
+    private static Map<Airport, Map<Airport, List<Integer>>> expected;
+
+    /**
+     * Load the bundled schedule and enumerate its routes
+     */
+    @BeforeAll
+    static void load() {
+        graph = TestSchedules.bundled();
+        airports = TestSchedules.airportsWithFlights(graph);
+        expected = new HashMap<>();
+        for (Airport start : airports) {
+            expected.put(start, TestSchedules.bruteForceCosts(graph, start, K));
+        }
+    }
+
+    /**
+     * The best first search, A* guided and with bounded labels, matches the exhaustive enumeration
+     */
+    @Test
+    void graphSearchMatchesBruteForce() {
+        assertMatchesBruteForce(graph);
+    }
+
+    /**
+     * The lazy iteration of the best first search returns the same routes as the eager search
+     */
+    @Test
+    void graphIterationMatchesGraphSearch() {
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                List<Integer> iterated = new ArrayList<>();
+                graph.iterateTopKCheapestFlights(start, destination, K)
+                        .forEachRemaining(route -> iterated.add(route.getCost()));
+                assertEquals(TestSchedules.costs(graph.topKCheapestFlights(start, destination, K)), iterated,
+                        start.getCode() + "-" + destination.getCode());
+            }
+        }
+    }
+
+    /**
+     * The connection scan engine matches the exhaustive enumeration
+     */
+    @Test
+    void connectionScanMatchesBruteForce() {
+        assertMatchesBruteForce(new ConnectionScanEngine(graph));
+    }
+
+    /**
+     * The round based engine matches the exhaustive enumeration
+     */
+    @Test
+    void raptorMatchesBruteForce() {
+        assertMatchesBruteForce(new RaptorEngine(graph));
+    }
+
+    /**
+     * Check the top k costs of an engine on every pair of airports with flights
+     *
+     * @param engine the engine
+     */
+    private static void assertMatchesBruteForce(SearchEngine engine) {
+        for (Airport start : airports) {
+            for (Airport destination : airports) {
+                if (start != destination) {
+                    assertEquals(expected.get(start).getOrDefault(destination, Collections.emptyList()),
+                            TestSchedules.costs(engine.topKCheapestFlights(start, destination, K)),
+                            start.getCode() + "-" + destination.getCode());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.mmt.flights.planner.service.route.planning.graph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mmt.flights.planner.properties.Planner;
+import com.mmt.flights.planner.properties.ScheduleProperties;
+import com.mmt.flights.planner.service.route.data.impl.ResourceFileDataLoader;
+import com.mmt.flights.planner.util.TimeUtil;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static com.mmt.flights.planner.ApiConstants.MAXIMUM_HOPS;
+import static com.mmt.flights.planner.ApiConstants.MINIMUM_LAYOVER_TIME_MINS;
+
+/**
+ * Graphs and reference answers shared by the search tests
+ *
+ * @author ritesh
+ * @version 1.0.0
+ */
+public final class TestSchedules {
+
+    /**
+     * the graph of the bundled schedule, loaded once
+     */
+    private static Graph bundled;
+
+    /**
+     * Utility class
+     */
+    private TestSchedules() {
+    }
+
+    /**
+     * Create a loader of the given schedule files
+     *
+     * @param properties the schedule properties, blank files load the bundled resources
+     * @return the loader
+     */
+    public static ResourceFileDataLoader loader(ScheduleProperties properties) {
+        Planner planner = new Planner();
+        planner.setSchedule(properties);
+        ResourceFileDataLoader loader = new ResourceFileDataLoader();
+        ReflectionTestUtils.setField(loader, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(loader, "planner", planner);
+        return loader;
+    }
+
+    /**
+     * Get the graph of the bundled schedule
+     *
+     * @return the graph
+     */
+    public static synchronized Graph bundled() {
+        if (bundled == null) {
+            try {
+                bundled = loader(new ScheduleProperties()).load();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return bundled;
+    }
+
+    /**
+     * Get the airports having at least one flight, in code order
+     *
+     * @param graph the graph
+     * @return the airports
+     */
+    public static List<Airport> airportsWithFlights(Graph graph) {
+        Set<String> codes = new TreeSet<>();
+        for (Flight flight : graph.getFlights()) {
+            if (flight != null) {
+                codes.add(flight.getDepartureAirport().getCode());
+                codes.add(flight.getArrivalAirport().getCode());
+            }
+        }
+        return codes.stream().map(graph::getAirport).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the costs of routes
+     *
+     * @param routes the routes
+     * @return the cost of every route in order
+     */
+    public static List<Integer> costs(List<Route> routes) {
+        return routes.stream().map(Route::getCost).collect(Collectors.toList());
+    }
+
+    /**
+     * Get comparable descriptions of routes
+     *
+     * @param routes the routes
+     * @return the cost and flight codes of every route in order
+     */
+    public static List<String> signatures(List<Route> routes) {
+        return routes.stream().map(route -> route.getCost() + ":" + route.getFlights().stream()
+                .map(Flight::getCode).collect(Collectors.joining(","))).collect(Collectors.toList());
+    }
+
+    /**
+     * Compute the k cheapest connecting route costs from start to every destination by enumerating every route, the
+     * reference the engines are checked against. It follows the constraints of {@link SearchEngine} literally and
+     * shares no code with them
+     *
+     * @param graph the graph
+     * @param start the start airport
+     * @param k     how many costs to keep per destination
+     * @return the k cheapest costs in ascending order by destination, destinations without a route are missing
+     */
+    public static Map<Airport, List<Integer>> bruteForceCosts(Graph graph, Airport start, int k) {
+        Map<Airport, List<Flight>> departures = new HashMap<>();
+        for (Flight flight : graph.getFlights()) {
+            if (flight != null) {
+                departures.computeIfAbsent(flight.getDepartureAirport(), airport -> new ArrayList<>()).add(flight);
+            }
+        }
+        // a domestic route stays in the start country, so domestic destinations only take the domestic routes
+        Map<Airport, List<Integer>> all = new HashMap<>();
+        Map<Airport, List<Integer>> domestic = new HashMap<>();
+        List<Airport> visited = new ArrayList<>();
+        visited.add(start);
+        enumerate(departures, null, null, 0, 0, visited, all);
+        enumerate(departures, start.getCountry(), null, 0, 0, visited, domestic);
+
+        Map<Airport, List<Integer>> costs = new HashMap<>();
+        all.forEach((destination, found) -> {
+            List<Integer> routes = destination.getCountry().equals(start.getCountry())
+                    ? domestic.get(destination) : found;
+            if (routes != null) {
+                routes.sort(Integer::compare);
+                costs.put(destination, routes.size() > k ? new ArrayList<>(routes.subList(0, k)) : routes);
+            }
+        });
+        return costs;
+    }
+
+    /**
+     * Extend a partial route by every flight leaving its last airport, a route ends at the first airport it lands at
+     * after its first flight or goes on to other airports, it never lands at an airport twice
+     *
+     * @param departures the flights by departure airport
+     * @param country    the country every airport must be in or null
+     * @param previous   the last flight of the partial route or null
+     * @param hops       the flights of the partial route
+     * @param cost       the cost of the partial route
+     * @param visited    the airports of the partial route
+     * @param costs      the costs of the connecting routes by destination
+     */
+    private static void enumerate(Map<Airport, List<Flight>> departures, String country, Flight previous, int hops,
+                                  int cost, List<Airport> visited, Map<Airport, List<Integer>> costs) {
+        final Airport at = visited.get(visited.size() - 1);
+        for (Flight flight : departures.getOrDefault(at, new ArrayList<>())) {
+            Airport to = flight.getArrivalAirport();
+            if (visited.contains(to) || (country != null && !to.getCountry().equals(country))) {
+                continue;
+            }
+            int next = cost + flight.getDuration() + (previous == null ? 0
+                    : TimeUtil.layoverInMins(previous.getArrivalMinute(), flight.getDepartureMinute(),
+                    MINIMUM_LAYOVER_TIME_MINS));
+            if (hops > 0) {
+                // a connecting route into to, direct flights are not routes
+                costs.computeIfAbsent(to, airport -> new ArrayList<>()).add(next);
+            }
+            if (hops + 1 < MAXIMUM_HOPS) {
+                visited.add(to);
+                enumerate(departures, country, flight, hops + 1, next, visited, costs);
+                visited.remove(visited.size() - 1);
+            }
+        }
+    }
+}